@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fixed benchmark corpus. Each puzzle is derived from a seeded random square image with 60% of its squares filled,
+ * so every puzzle has a solution and the corpus is identical on every run and machine.
+ */
+final class Corpus {
+    private static final double DENSITY = 0.6;
+
+    private Corpus() {
+    }
+
+    /**
+     * Builds the corpus puzzle of a size
+     *
+     * @param size width and height
+     * @return NonogramPuzzle
+     */
+    static Object puzzle(int size) throws Throwable {
+        SplittableRandom r = new SplittableRandom(size);
+        boolean[][] image = new boolean[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                image[i][j] = r.nextDouble() < DENSITY;
+            }
+        }
+        List<List<Integer>> rows = new ArrayList<>(), columns = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(runs(image, i, true));
+            columns.add(runs(image, i, false));
+        }
+        return (Object) Solver.PUZZLE_NEW.invokeExact(size, size, (Object) rows, (Object) columns);
+    }
+
+    /**
+     * Lists the lengths of the filled runs of a row or a column
+     */
+    private static List<Integer> runs(boolean[][] image, int k, boolean row) {
+        List<Integer> runs = new ArrayList<>();
+        int run = 0;
+        for (int x = 0; x <= image.length; x++) {
+            if (x < image.length && (row ? image[k][x] : image[x][k])) {
+                run++;
+            } else if (run > 0) {
+                runs.add(run);
+                run = 0;
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single {@code NonogramLine.update} on representative line shapes, for each line engine. A fresh line is solved from
+ * the same known masks on every invocation, without a line cache, so the enumeration engine cannot reuse the candidates
+ * stored by the previous invocation. Placement tables are a separate parameter: with them on, lines of up to
+ * {@code NonogramLineTable.MAX_LENGTH} squares, i.e. blank-15, are answered from their table whatever the engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LineBenchmark {
+    /**
+     * Line shape:
+     * <ul>
+     *     <li>blank-15: three clues on an undecided line of 15</li>
+     *     <li>dense-25: long clues leaving little slack</li>
+     *     <li>sparse-30: many single-square clues, the worst case for enumeration</li>
+     *     <li>partial-40: a line of 40 with a quarter of its squares decided</li>
+     *     <li>wide-100: a line spanning two mask words</li>
+     * </ul>
+     */
+    @Param({"blank-15", "dense-25", "sparse-30", "partial-40", "wide-100"})
+    public String shape;
+
+    @Param({"ENUMERATION", "OVERLAP"})
+    public String engine;
+
+    /**
+     * Solve short lines from their {@code NonogramLineTable}; off compares the engines on every shape
+     */
+    @Param({"false", "true"})
+    public boolean tables;
+
+    private int length;
+    private Object params, en;
+    private long[] filled, empty;
+
+    @Setup
+    public void setup() throws Throwable {
+        int[] clues;
+        String known = ""; // '#' known filled, '.' known empty, anything else undecided
+        switch (shape) {
+            case "blank-15":
+                length = 15;
+                clues = new int[]{3, 2, 4};
+                break;
+            case "dense-25":
+                length = 25;
+                clues = new int[]{6, 5, 7, 3};
+                break;
+            case "sparse-30":
+                length = 30;
+                clues = new int[]{1, 1, 1, 1, 1, 1, 1, 1};
+                break;
+            case "partial-40":
+                length = 40;
+                clues = new int[]{4, 1, 6, 2, 3, 5};
+                known = "  .  #     .   ##  .     .    #  .     ";
+                break;
+            case "wide-100":
+                length = 100;
+                clues = new int[]{12, 9, 15, 7, 20, 11};
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        params = Solver.params(clues);
+        en = Solver.engine(engine);
+        filled = new long[(length + 63) >>> 6];
+        empty = new long[filled.length];
+        for (int i = 0; i < known.length(); i++) {
+            if (known.charAt(i) == '#') filled[i >>> 6] |= 1L << i;
+            if (known.charAt(i) == '.') empty[i >>> 6] |= 1L << i;
+        }
+    }
+
+    @Benchmark
+    public Object update() throws Throwable {
+        Object line = (Object) Solver.LINE_NEW.invokeExact(length, params, tables);
+        Solver.LINE_UPDATE.invokeExact(line, filled, empty, en, (Object) null);
+        return line;
+    }
+}
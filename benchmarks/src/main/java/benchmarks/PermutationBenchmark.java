@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of every gap composition of a line by {@code NonogramPermutationUtil}, as the enumeration engine drives
+ * it: outer gaps of at least 0, interior gaps of at least 1.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PermutationBenchmark {
+    /**
+     * Free squares of the line and number of gaps, i.e. clue count + 1
+     */
+    @Param({"5:3", "10:4", "15:5", "20:6", "25:8", "30:10"})
+    public String shape;
+
+    private int m_sum, arr_length;
+
+    @Setup
+    public void setup() {
+        String[] s = shape.split(":");
+        m_sum = Integer.parseInt(s[0]);
+        arr_length = Integer.parseInt(s[1]);
+    }
+
+    @Benchmark
+    public int generate(Blackhole bh) throws Throwable {
+        Object util = (Object) Solver.PERMUTATION_NEW.invokeExact(0, m_sum, m_sum, arr_length);
+        int n = 0;
+        while ((boolean) Solver.PERMUTATION_NEXT.invokeExact(util)) {
+            bh.consume((int[]) Solver.PERMUTATION_CURRENT.invokeExact(util));
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,19 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark entry point. Takes the usual JMH command line and always attaches the GC profiler, so every result comes
+ * with its allocation rate ({@code gc.alloc.rate.norm} is bytes allocated per operation).
+ * <p>
+ * {@code java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp]}
+ */
+public class Run {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@code NonogramSolver.solve} on the {@link Corpus}, with default options. The enumeration engine is only
+ * measured up to 30x30; beyond that its candidate lists no longer fit a benchmark heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+
+    @State(Scope.Thread)
+    public static class OverlapCorpus {
+        @Param({"5", "10", "15", "20", "30", "40", "50"})
+        public int size;
+
+        Object puzzle, options;
+
+        @Setup
+        public void setup() throws Throwable {
+            puzzle = Corpus.puzzle(size);
+            options = (Object) Solver.OPTIONS_SET_ENGINE.invokeExact((Object) Solver.OPTIONS_NEW.invokeExact(), Solver.engine("OVERLAP"));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class EnumerationCorpus {
+        @Param({"5", "10", "15", "20", "30"})
+        public int size;
+
+        Object puzzle, options;
+
+        @Setup
+        public void setup() throws Throwable {
+            puzzle = Corpus.puzzle(size);
+            options = (Object) Solver.OPTIONS_SET_ENGINE.invokeExact((Object) Solver.OPTIONS_NEW.invokeExact(), Solver.engine("ENUMERATION"));
+        }
+    }
+
+    @Benchmark
+    public boolean overlap(OverlapCorpus c) throws Throwable {
+        return solve(c.puzzle, c.options);
+    }
+
+    @Benchmark
+    public boolean enumeration(EnumerationCorpus c) throws Throwable {
+        return solve(c.puzzle, c.options);
+    }
+
+    private static boolean solve(Object puzzle, Object options) throws Throwable {
+        Object result = (Object) Solver.SOLVE.invokeExact(puzzle, options);
+        boolean solved = (boolean) Solver.RESULT_IS_SOLVED.invokeExact(result);
+        if (!solved) throw new IllegalStateException("Corpus puzzle not solved");
+        return solved;
+    }
+}
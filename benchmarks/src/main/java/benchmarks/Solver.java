@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handles on the solver classes.
+ * <p>
+ * The solver lives in the unnamed package, which a named package cannot import, and JMH refuses benchmarks in the
+ * unnamed package. The benchmarks therefore reach the solver through method handles resolved once here; constant
+ * handles are inlined by the JIT like direct calls. {@code NonogramSolver.NonogramLine} is private, so its handles
+ * come from a private lookup, which the unnamed module grants to the class path.
+ */
+final class Solver {
+    static final Class<?> ENGINE;
+    static final MethodHandle PERMUTATION_NEW; // (r_min, r_max, m_sum, arr_length) -> NonogramPermutationUtil
+    static final MethodHandle PERMUTATION_NEXT; // (util) -> boolean
+    static final MethodHandle PERMUTATION_CURRENT; // (util) -> int[]
+    static final MethodHandle PUZZLE_NEW; // (width, height, rows, columns) -> NonogramPuzzle
+    static final MethodHandle OPTIONS_NEW; // () -> NonogramSolverOptions
+    static final MethodHandle OPTIONS_SET_ENGINE; // (options, engine) -> options
+    static final MethodHandle SOLVE; // (puzzle, options) -> NonogramResult
+    static final MethodHandle RESULT_IS_SOLVED; // (result) -> boolean
+    static final MethodHandle LINE_NEW; // (length, params, tables) -> NonogramLine
+    static final MethodHandle LINE_UPDATE; // (line, filled, empty, engine, cache) -> void
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> permutation = Class.forName("NonogramPermutationUtil");
+            Class<?> puzzle = Class.forName("NonogramPuzzle");
+            Class<?> options = Class.forName("NonogramSolverOptions");
+            Class<?> solver = Class.forName("NonogramSolver");
+            Class<?> result = Class.forName("NonogramResult");
+            Class<?> cache = Class.forName("NonogramLineCache");
+            Class<?> line = Class.forName("NonogramSolver$NonogramLine");
+            ENGINE = Class.forName("NonogramSolver$ENGINE");
+
+            PERMUTATION_NEW = generic(lookup.findConstructor(permutation, MethodType.methodType(void.class, int.class, int.class, int.class, int.class)));
+            PERMUTATION_NEXT = generic(lookup.findVirtual(permutation, "next", MethodType.methodType(boolean.class)));
+            PERMUTATION_CURRENT = generic(lookup.findVirtual(permutation, "current", MethodType.methodType(int[].class)));
+            PUZZLE_NEW = generic(lookup.findConstructor(puzzle, MethodType.methodType(void.class, int.class, int.class, List.class, List.class)));
+            OPTIONS_NEW = generic(lookup.findConstructor(options, MethodType.methodType(void.class)));
+            OPTIONS_SET_ENGINE = generic(lookup.findVirtual(options, "setEngine", MethodType.methodType(options, ENGINE)));
+            SOLVE = generic(lookup.findStatic(solver, "solve", MethodType.methodType(result, puzzle, options)));
+            RESULT_IS_SOLVED = generic(lookup.findVirtual(result, "isSolved", MethodType.methodType(boolean.class)));
+
+            MethodHandles.Lookup private_lookup = MethodHandles.privateLookupIn(line, lookup);
+            LINE_NEW = generic(private_lookup.findConstructor(line, MethodType.methodType(void.class, int.class, ArrayList.class, boolean.class)));
+            LINE_UPDATE = generic(private_lookup.findVirtual(line, "update", MethodType.methodType(void.class, long[].class, long[].class, ENGINE, cache)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Solver() {
+    }
+
+    /**
+     * Looks up an engine constant
+     *
+     * @param name engine name, see {@code NonogramSolver.ENGINE}
+     * @return engine
+     */
+    static Object engine(String name) {
+        for (Object e : ENGINE.getEnumConstants()) {
+            if (((Enum<?>) e).name().equals(name)) return e;
+        }
+        throw new IllegalArgumentException("Unknown engine: " + name);
+    }
+
+    /**
+     * Formats clues the way the solver stores line parameters: {@code [0, c1, 0, c2, ..., 0]}
+     *
+     * @param clues segment lengths
+     * @return line parameters
+     */
+    static ArrayList<Integer> params(int... clues) {
+        ArrayList<Integer> p = new ArrayList<>();
+        p.add(0);
+        for (int c : clues) {
+            p.add(c);
+            p.add(0);
+        }
+        return p;
+    }
+
+    /**
+     * Erases a handle's class types to Object, so callers can invoke it exactly without naming the solver classes
+     */
+    private static MethodHandle generic(MethodHandle h) {
+        MethodType t = h.type();
+        for (int i = 0; i < t.parameterCount(); i++) {
+            if (!t.parameterType(i).isPrimitive() && !t.parameterType(i).isArray()) t = t.changeParameterType(i, Object.class);
+        }
+        if (!t.returnType().isPrimitive() && !t.returnType().isArray()) t = t.changeReturnType(Object.class);
+        return h.asType(t);
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the colored line solver {@link NonogramColorLineSolver}, against hand-made lines and against brute force.
+ */
+class NonogramColorLineSolverTest {
+    private static final long ANY = 0b111; // background, color 1 or color 2
+
+    private static long[] solve(int[] lengths, int[] colors, long[] cells) {
+        long[] out = new long[cells.length];
+        return NonogramColorLineSolver.solve(lengths, colors, cells, out) ? out : null;
+    }
+
+    private static long[] open(int n) {
+        long[] cells = new long[n];
+        Arrays.fill(cells, ANY);
+        return cells;
+    }
+
+    @Test
+    void sameColorBlocksNeedAGap() {
+        assertArrayEquals(new long[]{0b10, 0b01, 0b10}, solve(new int[]{1, 1}, new int[]{1, 1}, open(3)));
+        assertNull(solve(new int[]{1, 1}, new int[]{1, 1}, open(2)));
+    }
+
+    @Test
+    void differentColorBlocksMayTouch() {
+        assertArrayEquals(new long[]{0b010, 0b100}, solve(new int[]{1, 1}, new int[]{1, 2}, open(2)));
+        // With a spare square, the blocks may touch or not, so the middle square can be anything
+        assertArrayEquals(new long[]{0b011, 0b111, 0b101}, solve(new int[]{1, 1}, new int[]{1, 2}, open(3)));
+    }
+
+    @Test
+    void honorsKnownSquares() {
+        long[] cells = open(3);
+        cells[1] = 0b001; // background
+        assertArrayEquals(new long[]{0b100, 0b001, 0b010}, solve(new int[]{1, 1}, new int[]{2, 1}, cells));
+        cells[0] = 0b010; // color 1 cannot start the line
+        assertNull(solve(new int[]{1, 1}, new int[]{2, 1}, cells));
+    }
+
+    @Test
+    void leavesDestinationUntouchedWhenImpossible() {
+        long[] out = {7, 7};
+        assertFalse(NonogramColorLineSolver.solve(new int[]{3}, new int[]{1}, open(2), out));
+        assertArrayEquals(new long[]{7, 7}, out);
+    }
+
+    @Test
+    void matchesBruteForce() {
+        Random random = new Random(42);
+        for (int t = 0; t < 3000; t++) {
+            int n = 1 + random.nextInt(7);
+            int k = random.nextInt(4);
+            int[] lengths = new int[k], colors = new int[k];
+            for (int j = 0; j < k; j++) {
+                lengths[j] = 1 + random.nextInt(3);
+                colors[j] = 1 + random.nextInt(2);
+            }
+            long[] cells = new long[n];
+            for (int i = 0; i < n; i++) {
+                cells[i] = random.nextInt(4) == 0 ? 1L << random.nextInt(3) : ANY;
+            }
+            long[] expected = bruteForce(lengths, colors, cells);
+            assertArrayEquals(expected, solve(lengths, colors, cells), () -> Arrays.toString(lengths) + Arrays.toString(colors) + Arrays.toString(cells));
+        }
+    }
+
+    /**
+     * Unions every coloring of the line with colors 0..2 that matches the blocks and the candidates
+     */
+    private static long[] bruteForce(int[] lengths, int[] colors, long[] cells) {
+        int n = cells.length;
+        long[] union = new long[n];
+        boolean found = false;
+        int[] line = new int[n];
+        for (int code = 0, total = (int) Math.pow(3, n); code < total; code++) {
+            boolean fits = true;
+            for (int i = 0, c = code; i < n; i++, c /= 3) {
+                line[i] = c % 3;
+                fits &= ((cells[i] >>> line[i]) & 1) != 0;
+            }
+            if (!fits || !matches(line, lengths, colors)) continue;
+            found = true;
+            for (int i = 0; i < n; i++) {
+                union[i] |= 1L << line[i];
+            }
+        }
+        return found ? union : null;
+    }
+
+    private static boolean matches(int[] line, int[] lengths, int[] colors) {
+        List<int[]> blocks = new ArrayList<>(); // {length, color}
+        for (int i = 0; i < line.length; i++) {
+            if (line[i] == 0) continue;
+            if (i > 0 && line[i - 1] == line[i]) blocks.get(blocks.size() - 1)[0]++;
+            else blocks.add(new int[]{1, line[i]});
+        }
+        if (blocks.size() != lengths.length) return false;
+        for (int j = 0; j < lengths.length; j++) {
+            if (blocks.get(j)[0] != lengths[j] || blocks.get(j)[1] != colors[j]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the capacity of {@link NonogramLineCache}.
+ */
+class NonogramLineCacheTest {
+    private static final long[] NONE = new long[1];
+
+    /**
+     * Distinct key k of a 64-square line
+     */
+    private static NonogramLineCache.Key key(int k) {
+        return new NonogramLineCache.Key(new int[]{1}, 64, new long[]{k}, NONE);
+    }
+
+    @Test
+    void neverHoldsMoreThanTheCapacity() {
+        for (int capacity : new int[]{16, 17, 31, 100, 1000}) {
+            NonogramLineCache cache = new NonogramLineCache(capacity);
+            for (int k = 0; k < 20 * capacity; k++) {
+                cache.put(key(k), NONE, NONE, true);
+                assertTrue(cache.size() <= capacity, () -> "capacity " + capacity);
+            }
+            assertEquals(20L * capacity - cache.size(), cache.getEvictions());
+        }
+    }
+
+    @Test
+    void fillsToTheCapacityWhenSpreadEvenly() {
+        NonogramLineCache cache = new NonogramLineCache(1000);
+        for (int k = 0; k < 100_000; k++) {
+            cache.put(key(k), NONE, NONE, true);
+        }
+        assertEquals(1000, cache.size(), "every segment full, the remainder included");
+    }
+
+    @Test
+    void rejectsCapacityBelowOnePerSegment() {
+        assertThrows(IllegalArgumentException.class, () -> new NonogramLineCache(15));
+        assertThrows(IllegalArgumentException.class, () -> new NonogramLineCache(0));
+    }
+}
@@ -0,0 +1,141 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the persisted file format of {@link NonogramResultCache}: append, reload, damaged tail and compaction.
+ */
+class NonogramResultCacheTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Picture k of a family of distinct 4x3 pictures
+     */
+    private static int[][] picture(int k) {
+        int[][] m = new int[3][4];
+        for (int i = 0; i < 3; i++) {
+            m[i][(i + k) % 4] = 1;
+        }
+        m[k % 3][3] = 1;
+        return m;
+    }
+
+    private static NonogramResult put(NonogramResultCache cache, int[][] picture) {
+        NonogramPuzzle p = NonogramPuzzle.of(picture);
+        NonogramResult r = NonogramSolver.solve(p);
+        cache.put(NonogramFingerprint.of(p), r);
+        return r;
+    }
+
+    @Test
+    void reloadsAppendedEntries() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        int[][] a = picture(0), b = picture(1);
+        NonogramResult ra, rb;
+        try (NonogramResultCache cache = new NonogramResultCache(16, file)) {
+            ra = put(cache, a);
+            rb = put(cache, b);
+        }
+        try (NonogramResultCache cache = new NonogramResultCache(16, file)) {
+            assertEquals(2, cache.size());
+            NonogramResult r = cache.get(NonogramFingerprint.of(NonogramPuzzle.of(a)), 1);
+            assertNotNull(r);
+            assertEquals(ra.getState(), r.getState());
+            assertArrayEquals(ra.getMatrix(), r.getMatrix());
+            assertArrayEquals(rb.getMatrix(), cache.get(NonogramFingerprint.of(NonogramPuzzle.of(b)), 1).getMatrix());
+        }
+    }
+
+    @Test
+    void answersMirroredPuzzleInItsOrientation() throws IOException {
+        int[][] a = picture(2), mirrored = new int[3][4];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 4; j++) {
+                mirrored[i][j] = a[i][3 - j];
+            }
+        }
+        try (NonogramResultCache cache = new NonogramResultCache(16, dir.resolve("cache.bin"))) {
+            put(cache, a);
+            NonogramResult r = cache.get(NonogramFingerprint.of(NonogramPuzzle.of(mirrored)), 1);
+            assertNotNull(r);
+            assertArrayEquals(mirrored, r.getMatrix());
+        }
+    }
+
+    @Test
+    void keepsImpossibleAndSkipsUnsolved() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        NonogramPuzzle impossible = new NonogramPuzzle(2, 2, List.of(List.of(2), List.of()), List.of(List.of(), List.of()));
+        NonogramPuzzle unsolved = new NonogramPuzzle(2, 2, List.of(List.of(1), List.of(1)), List.of(List.of(1), List.of(1)));
+        try (NonogramResultCache cache = new NonogramResultCache(16, file)) {
+            cache.put(NonogramFingerprint.of(impossible), NonogramSolver.solve(impossible));
+            cache.put(NonogramFingerprint.of(unsolved), NonogramSolver.solve(unsolved, new NonogramSolverOptions().setSearch(false)));
+        }
+        try (NonogramResultCache cache = new NonogramResultCache(16, file)) {
+            assertEquals(1, cache.size());
+            assertEquals(NonogramSolver.STATE.IMPOSSIBLE, cache.get(NonogramFingerprint.of(impossible), 1).getState());
+            assertNull(cache.get(NonogramFingerprint.of(unsolved), 1));
+        }
+    }
+
+    @Test
+    void dropsDamagedTailAndKeepsAppending() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        try (NonogramResultCache cache = new NonogramResultCache(16, file)) {
+            put(cache, picture(0));
+            put(cache, picture(1));
+        }
+        // A record cut short: the length in use claims garbage past the last complete record
+        try (FileChannel c = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer used = ByteBuffer.allocate(8);
+            c.read(used, 8);
+            long end = used.flip().getLong();
+            c.write(ByteBuffer.wrap(new byte[]{3, 1, 2}), end); // key length 3, then only two key bytes
+            c.write(ByteBuffer.allocate(8).putLong(0, end + 3), 8);
+        }
+        try (NonogramResultCache cache = new NonogramResultCache(16, file)) {
+            assertEquals(2, cache.size());
+            put(cache, picture(2));
+        }
+        try (NonogramResultCache cache = new NonogramResultCache(16, file)) {
+            assertEquals(3, cache.size());
+            assertNotNull(cache.get(NonogramFingerprint.of(NonogramPuzzle.of(picture(2))), 1));
+        }
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path file = dir.resolve("other.bin");
+        Files.write(file, new byte[]{'N', 'O', 'P', 'E', 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 16});
+        assertThrows(IOException.class, () -> new NonogramResultCache(16, file));
+        assertEquals(16, Files.size(file), "a foreign file must not be grown by the mapping");
+    }
+
+    @Test
+    void compactsToLiveEntries() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        try (NonogramResultCache cache = new NonogramResultCache(2, file)) {
+            for (int k = 0; k < 6; k++) { // more than twice the capacity in records
+                put(cache, picture(k));
+            }
+            assertEquals(2, cache.size());
+        }
+        assertFalse(Files.exists(dir.resolve("cache.bin.tmp")));
+        try (NonogramResultCache cache = new NonogramResultCache(2, file)) {
+            assertEquals(2, cache.size());
+            assertNotNull(cache.get(NonogramFingerprint.of(NonogramPuzzle.of(picture(5))), 1));
+            assertNotNull(cache.get(NonogramFingerprint.of(NonogramPuzzle.of(picture(4))), 1));
+            assertNull(cache.get(NonogramFingerprint.of(NonogramPuzzle.of(picture(0))), 1));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the worker pipe protocol of {@link NonogramShardRunner} and resuming a run from its checkpoint.
+ */
+class NonogramShardRunnerTest {
+    @TempDir
+    Path dir;
+
+    private static final List<NonogramPuzzle> PUZZLES = List.of(
+            NonogramPuzzle.of(new int[][]{{1, 1, 0}, {0, 1, 0}, {0, 1, 1}}), // unique
+            new NonogramPuzzle(2, 2, List.of(List.of(2), List.of()), List.of(List.of(), List.of())), // impossible
+            new NonogramPuzzle(2, 2, List.of(List.of(1), List.of(1)), List.of(List.of(1), List.of(1))), // two solutions
+            NonogramPuzzle.of(new int[][]{{1, 0, 1, 1}, {1, 1, 0, 1}}),
+            NonogramPuzzle.of(new int[][]{{0, 1}, {1, 1}, {1, 0}}));
+
+    @Test
+    void workerResultsMatchDirectSolves() throws IOException {
+        NonogramSolverOptions options = new NonogramSolverOptions().setSolutionLimit(2);
+        ByteArrayOutputStream puzzles = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(puzzles);
+        for (int k = 0; k < PUZZLES.size(); k++) {
+            NonogramShardRunner.writePuzzle(out, 10 + k, PUZZLES.get(k));
+        }
+        out.writeInt(NonogramShardRunner.END);
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        NonogramShardRunner.work(new ByteArrayInputStream(puzzles.toByteArray()), results, options);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(results.toByteArray()));
+        for (int k = 0; k < PUZZLES.size(); k++) {
+            long[] stats = new long[3];
+            NonogramResult got = (NonogramResult) NonogramShardRunner.readRecord(in, 10 + k, stats);
+            NonogramResult expected = NonogramSolver.solve(PUZZLES.get(k), options);
+            assertEquals(expected.getState(), got.getState());
+            assertEquals(expected.getStopReason(), got.getStopReason());
+            assertEquals(expected.isExhaustive(), got.isExhaustive());
+            assertArrayEquals(expected.getMatrix(), got.getMatrix());
+            assertEquals(expected.getSolutions().size(), got.getSolutions().size());
+            for (int s = 0; s < expected.getSolutions().size(); s++) {
+                assertArrayEquals(expected.getSolutions().get(s), got.getSolutions().get(s));
+            }
+            assertTrue(stats[0] > 0, "line solves are reported");
+        }
+        assertEquals(-1, in.read(), "one record per puzzle");
+    }
+
+    @Test
+    void rejectsRecordOfAnotherPuzzle() throws IOException {
+        ByteArrayOutputStream puzzles = new ByteArrayOutputStream();
+        NonogramShardRunner.writePuzzle(new DataOutputStream(puzzles), 3, PUZZLES.get(0));
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        NonogramShardRunner.work(new ByteArrayInputStream(puzzles.toByteArray()), results, new NonogramSolverOptions());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(results.toByteArray()));
+        assertThrows(IOException.class, () -> NonogramShardRunner.readRecord(in, 4, new long[3]));
+    }
+
+    @Test
+    void resumesFromCheckpoint() throws IOException, InterruptedException {
+        Path corpus = dir.resolve("corpus.non"), out = dir.resolve("out");
+        try (NonogramWriter writer = new NonogramWriter(corpus)) {
+            for (NonogramPuzzle p : PUZZLES) {
+                writer.write(p);
+            }
+        }
+        NonogramShardRunner runner = new NonogramShardRunner(corpus, out, NonogramSolutionWriter.FORM.TEXT, 1, 2, NonogramSolver.ENGINE.OVERLAP, 0);
+        NonogramShardRunner.Summary first = runner.run();
+        assertEquals(3, first.getShards());
+        assertEquals(3, first.getTotalShards());
+        assertEquals(0, first.getQuarantined());
+        byte[] results = Files.readAllBytes(out.resolve("results.txt"));
+
+        // Lose the last shard as if the run had stopped before checkpointing it
+        Path checkpoint = out.resolve("checkpoint");
+        List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8).stream()
+                .filter(l -> !l.equals("shard 2")).collect(Collectors.toList());
+        Files.write(checkpoint, lines, StandardCharsets.UTF_8);
+        Files.delete(out.resolve("results.txt"));
+
+        NonogramShardRunner.Summary second = runner.run();
+        assertEquals(1, second.getShards());
+        assertEquals(1, second.getSolved() + second.getUnsolved() + second.getImpossible());
+        assertArrayEquals(results, Files.readAllBytes(out.resolve("results.txt")));
+    }
+
+    @Test
+    void refusesCheckpointOfAnotherShardSize() throws IOException {
+        Path out = dir.resolve("out");
+        Files.createDirectories(out);
+        Files.write(out.resolve("checkpoint"), "shard-size 1000\nshard 0\n".getBytes(StandardCharsets.UTF_8));
+        NonogramShardRunner runner = new NonogramShardRunner(dir.resolve("corpus.non"), out, NonogramSolutionWriter.FORM.TEXT, 1, 2,
+                NonogramSolver.ENGINE.OVERLAP, 0);
+        assertThrows(IllegalStateException.class, runner::run);
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests how {@link NonogramTextReader} splits a NON stream into puzzles.
+ */
+class NonogramTextReaderTest {
+    private static final String PUZZLE = "width 2\nheight 2\n\nrows\n1\n2\n\ncolumns\n2\n1\n";
+
+    private static NonogramTextReader non(String text) {
+        return new NonogramTextReader(new StringReader(text), NonogramFormat.NON);
+    }
+
+    @Test
+    void ignoresTrailingGoal() throws IOException, NonogramParseException {
+        try (NonogramTextReader reader = non(PUZZLE + "goal \"0111\"\n")) {
+            NonogramPuzzle p = reader.read();
+            assertEquals(List.of(List.of(1), List.of(2)), p.getRowParams());
+            assertEquals(List.of(List.of(2), List.of(1)), p.getColumnParams());
+            assertNull(reader.read());
+            assertEquals(1, reader.getIndex());
+        }
+    }
+
+    @Test
+    void startsNextPuzzleAfterTrailingKeywords() throws IOException, NonogramParseException {
+        String text = "catalogue \"a\"\n" + PUZZLE + "goal \"0111\"\nauthor x\n\ntitle \"b\"\n" + PUZZLE + "goal \"0111\"\n";
+        try (NonogramTextReader reader = non(text)) {
+            assertNotNull(reader.read());
+            assertNotNull(reader.read());
+            assertNull(reader.read());
+            assertEquals(2, reader.getIndex());
+        }
+    }
+
+    @Test
+    void ignoresLeadingUnknownKeywords() throws IOException, NonogramParseException {
+        try (NonogramTextReader reader = non("goal \"0111\"\n" + PUZZLE)) {
+            assertNotNull(reader.read());
+            assertNull(reader.read());
+        }
+        try (NonogramTextReader reader = non("author x\n")) {
+            assertNull(reader.read(), "annotations alone are no puzzle");
+        }
+    }
+
+    @Test
+    void reportsPuzzleCutShort() throws IOException, NonogramParseException {
+        try (NonogramTextReader reader = non(PUZZLE + "goal \"0111\"\n\nwidth 2\nheight 2\nrows\n1\n2\n")) {
+            assertNotNull(reader.read());
+            NonogramParseException e = assertThrows(NonogramParseException.class, reader::read);
+            assertEquals(1, e.getPuzzle());
+            assertNull(reader.read());
+        }
+    }
+}
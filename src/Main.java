@@ -1,6 +1,10 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -18,15 +22,62 @@ public class Main {
     static Scanner s = new Scanner(System.in);
 
     /**
-     * Main method. Initializes and executes solver from collected inputs
+     * Main method. Initializes and executes solver from collected inputs, or solves every puzzle of a file
      *
-     * @param args
+     * @param args {@code [engine] [puzzle-file [solution-file]]}: optional line engine name, see
+     *             {@link NonogramSolver.ENGINE}, the overlap engine by default, then an optional puzzle file to solve in bulk, see
+     *             {@link NonogramFormat}. Solutions go to the solution file if given, in the form its extension
+     *             selects (see {@link NonogramSolutionWriter.FORM}), otherwise to standard output.
+     *             {@code [engine] --serve [port]} runs a {@link NonogramServer} instead, on port 8080 by default.
+     *             {@code [engine] --generate count width height density puzzle-file [seed [node-limit]]} writes random
+     *             puzzles with a unique solution instead, see {@link NonogramGenerator}.
+     *             {@code [engine] --shard puzzle-file out-dir [workers [shard-size [time-limit]]]} solves the file on
+     *             worker processes instead, resuming an interrupted run, see {@link NonogramShardRunner}; the time
+     *             limit is in milliseconds per puzzle. {@code [engine] --worker [time-limit]} is such a worker
+     * @throws IOException          if a file cannot be read or written
+     * @throws InterruptedException if interrupted while solving a file
      * @see Main#collectIntData(String)
      * @see Main#collectArrayData(String)
      * @see NonogramSolver
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        NonogramSolver.ENGINE engine = NonogramSolver.ENGINE.OVERLAP;
+        int a = 0;
+        if (args.length > a && isEngine(args[a])) engine = NonogramSolver.ENGINE.valueOf(args[a++].toUpperCase());
+        if (args.length > a && args[a].equals("--serve")) {
+            serve((args.length > a + 1) ? Integer.parseInt(args[a + 1]) : 8080, engine);
+            return;
+        }
+        if (args.length > a && args[a].equals("--generate")) {
+            if (args.length < a + 6) throw new IllegalArgumentException("Usage: [engine] --generate count width height density puzzle-file [seed [node-limit]]");
+            NonogramGenerator g = new NonogramGenerator(Integer.parseInt(args[a + 2]), Integer.parseInt(args[a + 3]), Double.parseDouble(args[a + 4]),
+                    (args.length > a + 6) ? Long.parseLong(args[a + 6]) : System.nanoTime(), (args.length > a + 7) ? Long.parseLong(args[a + 7]) : 0,
+                    new NonogramSolverOptions().setEngine(engine));
+            generate(g, Integer.parseInt(args[a + 1]), Path.of(args[a + 5]));
+            return;
+        }
+        if (args.length > a && args[a].equals("--shard")) {
+            if (args.length < a + 3) throw new IllegalArgumentException("Usage: [engine] --shard puzzle-file out-dir [workers [shard-size [time-limit]]]");
+            NonogramShardRunner runner = new NonogramShardRunner(Path.of(args[a + 1]), Path.of(args[a + 2]), NonogramSolutionWriter.FORM.TEXT,
+                    (args.length > a + 3) ? Integer.parseInt(args[a + 3]) : Runtime.getRuntime().availableProcessors(),
+                    (args.length > a + 4) ? Integer.parseInt(args[a + 4]) : 1000, engine, (args.length > a + 5) ? Long.parseLong(args[a + 5]) : 60_000);
+            System.err.println(runner.run());
+            return;
+        }
+        if (args.length > a && args[a].equals("--worker")) {
+            NonogramSolverOptions options = new NonogramSolverOptions().setEngine(engine).setLineCache(new NonogramLineCache(1 << 16))
+                    .setTimeLimit((args.length > a + 1) ? Long.parseLong(args[a + 1]) : 0);
+            NonogramShardRunner.work(System.in, System.out, options);
+            return;
+        }
+        if (args.length > a) {
+            solveFile(Path.of(args[a]), (args.length > a + 1) ? Path.of(args[a + 1]) : null, engine);
+            return;
+        }
         List<Integer> dims = collectArrayData("Enter dimensions (Format: {width} {height}): ");
+        while (dims.size() != 2 || dims.get(0) < 1 || dims.get(1) < 1) {
+            dims = collectArrayData("Expected two positive numbers. Enter dimensions (Format: {width} {height}): ");
+        }
 
         ArrayList<ArrayList<Integer>> row_params = new ArrayList<>(), column_params = new ArrayList<>();
         for (int i = 0; i < dims.get(1); i++) {
@@ -38,7 +89,7 @@ public class Main {
             column_params.add(arr);
         }
 
-        NonogramSolver n = new NonogramSolver(dims, row_params, column_params); // Returns a matrix where 1 denotes a filled entry and 0 denotes a blank entry
+        NonogramSolver n = new NonogramSolver(dims, row_params, column_params, engine); // Returns a matrix where 1 denotes a filled entry and 0 denotes a blank entry
         n.printNonogramSolution();
         s.close();
     }
@@ -55,23 +106,121 @@ public class Main {
     }
 
     /**
-     * Input collection wrapper
+     * Input collection wrapper. A blank line is an empty list; anything that is not a list of non-negative numbers is
+     * reported and asked for again
      *
      * @param msg - query message
      * @return int list data
      */
     public static ArrayList<Integer> collectArrayData(String msg) {
         System.out.println(msg);
-        try {
-            String p = s.nextLine();
-            String[] srr = p.split(" ");
+        while (true) {
+            String p = s.nextLine().trim();
             ArrayList<Integer> arr = new ArrayList<Integer>();
-            for (String i : srr) {
-                arr.add(Integer.parseInt(i));
+            try {
+                for (String i : p.split("\\s+")) {
+                    if (i.isEmpty()) continue;
+                    int v = Integer.parseInt(i);
+                    if (v < 0) throw new NumberFormatException("negative value " + v);
+                    arr.add(v);
+                }
+                return arr;
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input \"" + p + "\" (" + e.getMessage() + "), try again:");
+            }
+        }
+    }
+
+    /**
+     * Solves every puzzle of a file on all cores, streaming the solutions out as they complete. Puzzles that cannot be
+     * parsed are reported on standard error and written to the output as errors
+     *
+     * @param in     puzzle file
+     * @param out    solution file, or null for standard output
+     * @param engine line engine
+     * @throws IOException          if a file cannot be read or written
+     * @throws InterruptedException if interrupted while solving
+     */
+    public static void solveFile(Path in, Path out, NonogramSolver.ENGINE engine) throws IOException, InterruptedException {
+        NonogramSolverOptions options = new NonogramSolverOptions().setEngine(engine).setLineCache(new NonogramLineCache(1 << 16))
+                .setResultCache(new NonogramResultCache(1 << 14));
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        AtomicReference<IOException> failure = new AtomicReference<>(); // first write failure, on a worker thread
+        try (NonogramReader reader = NonogramReader.open(in);
+             NonogramSolutionWriter writer = (out != null) ? new NonogramSolutionWriter(out) : new NonogramSolutionWriter(System.out, false);
+             NonogramBatchSolver batch = new NonogramBatchSolver(parallelism, options)) {
+            while (true) {
+                int index = reader.getIndex();
+                NonogramPuzzle p;
+                try {
+                    p = reader.read();
+                } catch (NonogramParseException e) {
+                    System.err.println(e.getMessage());
+                    writer.writeError(e.getPuzzle(), e.getMessage());
+                    continue;
+                }
+                if (p == null) break;
+                batch.submit(p).whenComplete((r, t) -> {
+                    try {
+                        if (t != null) writer.writeError(index, String.valueOf((t.getCause() != null) ? t.getCause() : t));
+                        else writer.write(index, r);
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
             }
-            return arr;
-        } catch (Exception e) {
-            return new ArrayList<>();
         }
+        if (Thread.interrupted()) throw new InterruptedException(); // closing the batch stopped waiting
+        if (failure.get() != null) throw failure.get();
+    }
+
+    /**
+     * Generates puzzles on all cores, streaming them to a file as they are accepted, and reports the yield on standard
+     * error. Gives up after a million candidates per requested puzzle
+     *
+     * @param generator generator
+     * @param count     puzzles to generate
+     * @param out       puzzle file, in the format its extension selects
+     * @throws IOException          if the file cannot be written
+     * @throws InterruptedException if interrupted while generating
+     */
+    public static void generate(NonogramGenerator generator, int count, Path out) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int[] written = {0};
+        long tried;
+        try (NonogramWriter writer = new NonogramWriter(out)) {
+            tried = generator.generate(count, 1_000_000L * Math.max(count, 1), Runtime.getRuntime().availableProcessors(), p -> {
+                try {
+                    writer.write(p);
+                    written[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        System.err.printf("Generated %d of %d puzzles from %d candidates in %.1fs%n", written[0], count, tried, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Runs a solve server on all cores until the process is stopped
+     *
+     * @param port   loopback port
+     * @param engine line engine
+     * @throws IOException if the port cannot be bound
+     */
+    public static void serve(int port, NonogramSolver.ENGINE engine) throws IOException {
+        NonogramSolverOptions options = new NonogramSolverOptions().setEngine(engine).setLineCache(new NonogramLineCache(1 << 16))
+                .setResultCache(new NonogramResultCache(1 << 14));
+        NonogramServer server = new NonogramServer(port, Runtime.getRuntime().availableProcessors(), 256, 30_000, options);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.err.println("Serving on http://localhost:" + server.getPort() + "/solve");
+    }
+
+    private static boolean isEngine(String arg) {
+        for (NonogramSolver.ENGINE e : NonogramSolver.ENGINE.values()) {
+            if (e.name().equalsIgnoreCase(arg)) return true;
+        }
+        return false;
     }
 }
\ No newline at end of file
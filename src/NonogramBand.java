@@ -0,0 +1,34 @@
+/**
+ * Reachability table of the line solvers, {@link NonogramLineSolver} and {@link NonogramColorLineSolver}, whose row j
+ * only stores the columns {@code [lo[j], hi[j]]}; every other entry is false
+ */
+class NonogramBand {
+    private final int[] lo, hi, base;
+    private final boolean[] v;
+
+    /**
+     * Instantiates a table of false entries
+     *
+     * @param lo first stored column of every row
+     * @param hi last stored column of every row, below lo for an empty row
+     */
+    NonogramBand(int[] lo, int[] hi) {
+        this.lo = lo;
+        this.hi = hi;
+        base = new int[lo.length];
+        int size = 0;
+        for (int j = 0; j < lo.length; j++) {
+            base[j] = size - lo[j];
+            size += Math.max(0, hi[j] - lo[j] + 1);
+        }
+        v = new boolean[size];
+    }
+
+    boolean get(int j, int i) {
+        return i >= lo[j] && i <= hi[j] && v[base[j] + i];
+    }
+
+    void set(int j, int i, boolean b) {
+        v[base[j] + i] = b;
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Solves many puzzles concurrently on a bounded pool.
+ * <p>
+ * At most {@code parallelism} puzzles are solved at once. Submitting more blocks the caller until a slot frees up, so
+ * a large corpus can be streamed through without queueing all of it in memory. Every solve goes through the stateless
+ * {@link NonogramSolver#solve(NonogramPuzzle, NonogramSolverOptions)}.
+ */
+public class NonogramBatchSolver implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT = 60; // seconds close() waits for the solves in flight
+
+    private final ExecutorService executor;
+    private final Semaphore permits; // one per puzzle in flight
+    private final NonogramSolverOptions options;
+
+    /**
+     * Instantiates a batch solver on platform threads
+     *
+     * @param parallelism maximum number of puzzles solved at once
+     * @param options     solver options used for every puzzle
+     */
+    public NonogramBatchSolver(int parallelism, NonogramSolverOptions options) {
+        this(parallelism, false, options);
+    }
+
+    /**
+     * Instantiates a batch solver
+     *
+     * @param parallelism     maximum number of puzzles solved at once
+     * @param virtual_threads run each solve on its own virtual thread when the runtime supports them, otherwise fall
+     *                        back to a pool of platform threads
+     * @param options         solver options used for every puzzle
+     */
+    public NonogramBatchSolver(int parallelism, boolean virtual_threads, NonogramSolverOptions options) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        ExecutorService e = virtual_threads ? newVirtualThreadExecutor() : null;
+        executor = (e != null) ? e : Executors.newFixedThreadPool(parallelism);
+        permits = new Semaphore(parallelism);
+        this.options = options;
+    }
+
+    /**
+     * Submits a puzzle, blocking while the pool is saturated
+     *
+     * @param puzzle puzzle
+     * @return future completed with the result, or exceptionally if the solve failed
+     * @throws InterruptedException if interrupted while waiting for a free slot
+     */
+    public CompletableFuture<NonogramResult> submit(NonogramPuzzle puzzle) throws InterruptedException {
+        permits.acquire();
+        try {
+            return CompletableFuture.supplyAsync(() -> NonogramSolver.solve(puzzle, options), executor)
+                    .whenComplete((r, t) -> permits.release());
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Submits every puzzle of a collection
+     *
+     * @param puzzles puzzles
+     * @return futures in the order of the collection
+     * @throws InterruptedException if interrupted while waiting for a free slot
+     */
+    public List<CompletableFuture<NonogramResult>> submitAll(Collection<NonogramPuzzle> puzzles) throws InterruptedException {
+        List<CompletableFuture<NonogramResult>> futures = new ArrayList<>(puzzles.size());
+        for (NonogramPuzzle p : puzzles) {
+            futures.add(submit(p));
+        }
+        return futures;
+    }
+
+    /**
+     * Streams puzzles through the pool and hands each result to a sink as soon as it is ready. Results arrive in
+     * completion order, on the worker threads, so the sink must be thread-safe
+     *
+     * @param puzzles puzzles, consumed lazily
+     * @param sink    receives each puzzle with its result
+     * @throws InterruptedException if interrupted while waiting
+     * @throws RuntimeException     the first solve failure, once every submitted puzzle has completed
+     */
+    public void solveAll(Iterable<NonogramPuzzle> puzzles, BiConsumer<NonogramPuzzle, NonogramResult> sink) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (NonogramPuzzle p : puzzles) {
+            pending.add(submit(p).thenAccept(r -> sink.accept(p, r)).handle((v, t) -> {
+                if (t != null) failure.compareAndSet(null, t);
+                return null;
+            }));
+            pending.removeIf(CompletableFuture::isDone);
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        Throwable t = failure.get();
+        if (t != null) {
+            throw (t instanceof CompletionException) ? (CompletionException) t : new CompletionException(t);
+        }
+    }
+
+    /**
+     * Stops accepting puzzles and waits up to a minute for the ones in flight, then interrupts their threads and
+     * returns. Solves do not react to interrupts, so a solve still running completes its future whenever it stops;
+     * bound solves with a time limit or cancellation token in the options to have close() wait for all of them. If
+     * interrupted, stops waiting and returns with the interrupt flag set
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}, which only exists on runtimes with virtual threads
+     *
+     * @return executor, or null if virtual threads are not available
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
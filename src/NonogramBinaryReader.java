@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped reader for the {@link NonogramFormat#BINARY} format.
+ * <p>
+ * A file starts with the magic bytes "NONB" and a version byte. Each puzzle follows as a varint payload length and the
+ * payload: varint width, varint height, then for every row and every column a varint clue count followed by the
+ * varint clues. The file is mapped in windows of at most {@link #WINDOW} bytes, so archives larger than the address
+ * space of a single mapping can be read. Puzzles already in memory, e.g. a request body, are read from a buffer
+ * instead.
+ */
+public class NonogramBinaryReader extends NonogramReader {
+    static final byte[] MAGIC = {'N', 'O', 'N', 'B'};
+    static final int VERSION = 1;
+    private static final long WINDOW = 64L << 20; // bytes mapped at once
+
+    private final FileChannel channel; // null when reading from memory
+    private final ByteBuffer source; // whole stream when reading from memory, null otherwise
+    private final long size;
+    private ByteBuffer buffer; // current window
+    private long base; // file offset of the current window
+
+    /**
+     * Opens a binary puzzle file
+     *
+     * @param path file
+     * @throws IOException if the file cannot be opened or is not a binary puzzle file
+     */
+    public NonogramBinaryReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        source = null;
+        try {
+            size = channel.size();
+            map(0, 0);
+            readHeader(path.toString());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads binary puzzles from memory
+     *
+     * @param bytes stream, from its position to its limit
+     * @throws IOException if the stream is not a binary puzzle stream
+     */
+    public NonogramBinaryReader(ByteBuffer bytes) throws IOException {
+        channel = null;
+        source = bytes.slice();
+        size = source.limit();
+        map(0, 0);
+        readHeader("buffer");
+    }
+
+    private void readHeader(String name) throws IOException {
+        for (byte b : MAGIC) {
+            if (!buffer.hasRemaining() || buffer.get() != b) throw new IOException("Not a binary puzzle file: " + name);
+        }
+        if (!buffer.hasRemaining()) throw new IOException("Not a binary puzzle file: " + name);
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported binary puzzle version " + version + ": " + name);
+    }
+
+    @Override
+    public NonogramPuzzle read() throws IOException, NonogramParseException {
+        long start = base + buffer.position();
+        if (start >= size) return null;
+        if (buffer.remaining() < 10 && base + buffer.limit() < size) map(start, 0); // keep the length prefix in one window
+        int puzzle = index++;
+        long length;
+        try {
+            length = readVarint(buffer, size - start);
+        } catch (IllegalStateException e) {
+            map(size, 0); // the length itself is cut off, nothing after it can be read
+            throw new NonogramParseException(puzzle, start, e.getMessage());
+        }
+        long payload = base + buffer.position(), end = payload + length;
+        if (length > Integer.MAX_VALUE || end > size) {
+            map(size, 0);
+            throw new NonogramParseException(puzzle, start, "Record of " + length + " bytes runs past the end of the file");
+        }
+        if (end - base > buffer.limit()) map(payload, length); // the record straddles the window
+        ByteBuffer record = buffer.slice().limit((int) length);
+        buffer.position((int) (end - base));
+        try {
+            int width = readInt(record), height = readInt(record);
+            if (width < 1 || height < 1) throw new IllegalStateException("Dimensions must be positive: " + width + "x" + height);
+            List<List<Integer>> rows = readClues(record, height), columns = readClues(record, width);
+            if (record.hasRemaining()) throw new IllegalStateException(record.remaining() + " trailing bytes");
+            String problem = checkPuzzle(width, height, rows, columns);
+            if (problem != null) throw new IllegalStateException(problem);
+            return new NonogramPuzzle(width, height, rows, columns);
+        } catch (IllegalStateException e) {
+            throw new NonogramParseException(puzzle, start, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * Reads the clue lists of a section
+     */
+    private static List<List<Integer>> readClues(ByteBuffer record, int count) {
+        if (count > record.remaining()) throw new IllegalStateException(count + " clue lists exceed the record");
+        List<List<Integer>> clues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int n = readInt(record);
+            if (n > record.remaining()) throw new IllegalStateException("Clue count " + n + " exceeds the record");
+            List<Integer> line = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                line.add(readInt(record));
+            }
+            clues.add(line);
+        }
+        return clues;
+    }
+
+    private static int readInt(ByteBuffer b) {
+        long v = readVarint(b, b.remaining());
+        if (v > Integer.MAX_VALUE) throw new IllegalStateException("Value out of range: " + v);
+        return (int) v;
+    }
+
+    /**
+     * Decodes an unsigned LEB128 varint
+     *
+     * @param b     source
+     * @param limit bytes available
+     * @return value
+     * @throws IllegalStateException if the varint is truncated or longer than 9 bytes
+     */
+    static long readVarint(ByteBuffer b, long limit) {
+        long v = 0;
+        for (int shift = 0, i = 0; i < 9; shift += 7, i++) {
+            if (i >= limit || !b.hasRemaining()) throw new IllegalStateException("Truncated varint");
+            int x = b.get();
+            v |= (long) (x & 0x7F) << shift;
+            if (x >= 0) return v;
+        }
+        throw new IllegalStateException("Varint too long");
+    }
+
+    /**
+     * Maps the window starting at a file offset
+     *
+     * @param offset  first byte of the window
+     * @param minimum bytes the window must hold, for records larger than {@link #WINDOW}
+     */
+    private void map(long offset, long minimum) throws IOException {
+        base = offset;
+        if (source != null) {
+            buffer = source.duplicate().position((int) offset).slice();
+            return;
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(Math.max(WINDOW, minimum), size - offset));
+    }
+}
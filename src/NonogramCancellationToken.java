@@ -0,0 +1,22 @@
+/**
+ * Cooperative cancellation of solves.
+ * <p>
+ * A token is handed to a solve through {@link NonogramSolverOptions#setCancellationToken(NonogramCancellationToken)}
+ * and cancelled from any thread. The solver checks it between line solves, inside long line enumerations and at every
+ * search node, and returns its partial grid with {@link NonogramSolver.REASON#CANCELLED}. One token may be shared by
+ * any number of solves, e.g. every puzzle of a batch. Cancellation cannot be undone.
+ */
+public class NonogramCancellationToken {
+    private volatile boolean cancelled = false;
+
+    /**
+     * Cancels every solve using this token. Solves already finished are unaffected
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
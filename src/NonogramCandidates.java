@@ -0,0 +1,174 @@
+/**
+ * Packed store of the candidate placements of a line, for the enumeration engine.
+ * <p>
+ * Each candidate is its filled mask, {@code words} longs laid out back to back in one growable {@code long[]} arena, so
+ * a line with many candidates costs one array instead of one object per candidate. Candidates are filtered against
+ * the known squares in place, by compacting the arena, while a running AND/OR reduction intersects the survivors.
+ * <p>
+ * The store remembers the masks it was last filtered against. As long as the known squares of a line only grow, the
+ * stored candidates are a superset of the consistent ones and are filtered again instead of enumerated again. A store
+ * that would exceed its limit is dropped, and the line falls back to streaming its candidates.
+ * <p>
+ * Copies share the arena until either side filters it, so a search node inherits the candidates of its parent without
+ * copying them.
+ */
+class NonogramCandidates {
+    private final int words, limit; // longs per candidate, most candidates kept
+    private final long[] known_filled, known_empty; // masks the candidates were last filtered against
+    private long[] arena;
+    private int size = 0;
+    private boolean complete = false; // whether the arena holds every candidate consistent with the known masks
+    private boolean shared = false; // whether the arena is shared with a copy and must not be written
+
+    /**
+     * Instantiates an empty store
+     *
+     * @param words longs per candidate
+     * @param limit most longs kept
+     */
+    NonogramCandidates(int words, int limit) {
+        this.words = words;
+        this.limit = Math.max(1, limit / words);
+        known_filled = new long[words];
+        known_empty = new long[words];
+        arena = new long[Math.min(16, this.limit) * words];
+    }
+
+    /**
+     * Copies a store, sharing its arena until either side writes it
+     *
+     * @param c store to copy
+     */
+    NonogramCandidates(NonogramCandidates c) {
+        words = c.words;
+        limit = c.limit;
+        known_filled = c.known_filled.clone();
+        known_empty = c.known_empty.clone();
+        arena = c.arena;
+        size = c.size;
+        complete = c.complete;
+        shared = true;
+        c.shared = true;
+    }
+
+    /**
+     * Checks whether the stored candidates can be filtered for the given masks instead of enumerated
+     *
+     * @param f known-filled mask
+     * @param e known-empty mask
+     * @return true if the store is complete for a subset of the given known squares
+     */
+    boolean covers(long[] f, long[] e) {
+        if (!complete) return false;
+        for (int w = 0; w < words; w++) {
+            if ((known_filled[w] & ~f[w]) != 0 || (known_empty[w] & ~e[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Empties the store before a new enumeration
+     *
+     * @param f known-filled mask the enumeration filters against
+     * @param e known-empty mask the enumeration filters against
+     */
+    void reset(long[] f, long[] e) {
+        if (shared) {
+            arena = new long[Math.min(16, limit) * words];
+            shared = false;
+        }
+        System.arraycopy(f, 0, known_filled, 0, words);
+        System.arraycopy(e, 0, known_empty, 0, words);
+        size = 0;
+        complete = true;
+    }
+
+    /**
+     * Appends a candidate, or drops the store once it is full
+     *
+     * @param row filled mask of the candidate
+     * @return false if the store is no longer complete
+     */
+    boolean add(long[] row) {
+        if (!complete) return false;
+        if (size == limit) {
+            drop();
+            return false;
+        }
+        if ((size + 1) * words > arena.length) {
+            long[] a = new long[Math.min(2 * size, limit) * words];
+            System.arraycopy(arena, 0, a, 0, size * words);
+            arena = a;
+        }
+        System.arraycopy(row, 0, arena, size * words, words);
+        size++;
+        return true;
+    }
+
+    /**
+     * Releases the arena, leaving the store incomplete until the next {@link #reset}
+     */
+    void drop() {
+        arena = new long[Math.min(16, limit) * words];
+        shared = false;
+        size = 0;
+        complete = false;
+    }
+
+    /**
+     * Removes the candidates that fill a known-empty square or leave a known-filled square empty, and intersects the
+     * rest. Only valid if {@link #covers} holds
+     *
+     * @param f      known-filled mask
+     * @param e      known-empty mask
+     * @param common set to the AND of the kept candidates
+     * @param union  set to the OR of the kept candidates
+     * @return number of candidates removed
+     */
+    int filter(long[] f, long[] e, long[] common, long[] union) {
+        long[] dst = arena;
+        if (shared) {
+            dst = new long[Math.max(1, size) * words];
+            shared = false;
+        }
+        int kept = 0;
+        for (int k = 0, o = 0; k < size; k++, o += words) {
+            boolean ok = true;
+            for (int w = 0; w < words; w++) {
+                long c = arena[o + w];
+                if ((c & e[w]) != 0 || (~c & f[w]) != 0) {
+                    ok = false;
+                    break;
+                }
+            }
+            if (!ok) continue;
+            int d = kept * words;
+            for (int w = 0; w < words; w++) {
+                long c = arena[o + w];
+                dst[d + w] = c;
+                common[w] = (kept == 0) ? c : common[w] & c;
+                union[w] = (kept == 0) ? c : union[w] | c;
+            }
+            kept++;
+        }
+        int removed = size - kept;
+        arena = dst;
+        size = kept;
+        System.arraycopy(f, 0, known_filled, 0, words);
+        System.arraycopy(e, 0, known_empty, 0, words);
+        return removed;
+    }
+
+    /**
+     * Counts the stored candidates
+     *
+     * @return number of candidates
+     */
+    int size() {
+        return size;
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+}
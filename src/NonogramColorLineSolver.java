@@ -0,0 +1,137 @@
+/**
+ * Polynomial-time line solver for colored lines, the colored counterpart of {@link NonogramLineSolver}.
+ * <p>
+ * Every square holds a bitmask of the colors it can still take, bit 0 being the background. The same forward and
+ * backward reachability tables over (blocks placed, squares covered) are used, except that a block may touch its
+ * neighbour when their colors differ, and that a block fits where every square it covers can take its color. A square
+ * keeps exactly the colors some complete placement gives it. The tables are kept as bands of slack + 1 entries per
+ * block, so a line takes O(length * colors + blocks * slack) time and space.
+ */
+public class NonogramColorLineSolver {
+
+    private NonogramColorLineSolver() {
+    }
+
+    /**
+     * Solves a line against its blocks
+     *
+     * @param lengths lengths of the blocks, in order, all positive
+     * @param colors  colors of the blocks, 1..{@link NonogramColorPuzzle#MAX_COLORS}
+     * @param cells   candidate colors of every square, bit 0 the background
+     * @param out     destination for the narrowed candidates, may be the same array as cells
+     * @return false if no placement matches the candidates, in which case the destination is left untouched
+     */
+    public static boolean solve(int[] lengths, int[] colors, long[] cells, long[] out) {
+        int n = cells.length, k = lengths.length;
+        boolean[] bg = new boolean[n]; // squares that can be background
+        for (int i = 0; i < n; i++) {
+            bg[i] = (cells[i] & 1) != 0;
+        }
+        // Prefix counts of squares that cannot take a color, per color used, to test whether a block fits in constant time
+        int[][] misfit = new int[NonogramColorPuzzle.MAX_COLORS + 1][];
+        for (int c : colors) {
+            if (misfit[c] != null) continue;
+            int[] m = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                m[i + 1] = m[i] + (((cells[i] >>> c) & 1) == 0 ? 1 : 0);
+            }
+            misfit[c] = m;
+        }
+        int[] gap = new int[k + 1]; // gap[j]: background squares required between blocks j - 1 and j
+        for (int j = 1; j < k; j++) {
+            gap[j] = (colors[j - 1] == colors[j]) ? 1 : 0;
+        }
+
+        int[] min_end = new int[k + 1], min_rest = new int[k + 1];
+        for (int j = 1; j <= k; j++) {
+            min_end[j] = min_end[j - 1] + lengths[j - 1] + gap[j - 1];
+        }
+        for (int j = k - 1; j >= 0; j--) {
+            min_rest[j] = min_rest[j + 1] + lengths[j] + gap[j + 1];
+        }
+        if (min_rest[0] > n) return false;
+        int[] fw_lo = new int[k + 1], fw_hi = new int[k + 1], bw_lo = new int[k + 1], bw_hi = new int[k + 1];
+        for (int j = 0; j <= k; j++) {
+            int between = (j > 0 && j < k) ? gap[j] : 0; // required between the placed blocks and the rest
+            fw_lo[j] = min_end[j];
+            fw_hi[j] = n - min_rest[j] - between;
+            bw_lo[j] = min_end[j] + between;
+            bw_hi[j] = n - min_rest[j];
+        }
+
+        // fw[j][i]: the first j blocks fit into squares [0, i)
+        NonogramBand fw = new NonogramBand(fw_lo, fw_hi);
+        fw.set(0, 0, true);
+        for (int i = 1; i <= fw_hi[0]; i++) {
+            fw.set(0, i, fw.get(0, i - 1) && bg[i - 1]);
+        }
+        for (int j = 1; j <= k; j++) {
+            int len = lengths[j - 1];
+            int[] m = misfit[colors[j - 1]];
+            for (int i = fw_lo[j]; i <= fw_hi[j]; i++) {
+                boolean r = fw.get(j, i - 1) && bg[i - 1]; // square i - 1 is background
+                int s = i - len;
+                if (!r && m[i] - m[s] == 0) { // block j - 1 ends exactly at i
+                    r = (j == 1) ? fw.get(0, s) : (gap[j - 1] == 0) ? fw.get(j - 1, s) : (bg[s - 1] && fw.get(j - 1, s - 1));
+                }
+                fw.set(j, i, r);
+            }
+        }
+        if (!fw.get(k, n)) return false;
+
+        // bw[j][i]: blocks j..k-1 fit into squares [i, n)
+        NonogramBand bw = new NonogramBand(bw_lo, bw_hi);
+        bw.set(k, n, true);
+        for (int i = n - 1; i >= bw_lo[k]; i--) {
+            bw.set(k, i, bw.get(k, i + 1) && bg[i]);
+        }
+        for (int j = k - 1; j >= 0; j--) {
+            int len = lengths[j];
+            int[] m = misfit[colors[j]];
+            for (int i = bw_hi[j]; i >= bw_lo[j]; i--) {
+                boolean r = bw.get(j, i + 1) && bg[i]; // square i is background
+                int e = i + len;
+                if (!r && m[e] - m[i] == 0) { // block j starts exactly at i
+                    r = (j == k - 1) ? bw.get(k, e) : (gap[j + 1] == 0) ? bw.get(j + 1, e) : (bg[e] && bw.get(j + 1, e + 1));
+                }
+                bw.set(j, i, r);
+            }
+        }
+
+        // Background between two settled halves, and the color of every placeable block over the squares it covers
+        long[] result = new long[n];
+        for (int i = 0, first = 0; i < n; i++) {
+            while (fw_hi[first] < i) first++; // the bands of earlier rows end before i
+            if (!bg[i]) continue;
+            for (int j = first; j <= k && fw_lo[j] <= i; j++) {
+                if (fw.get(j, i) && bw.get(j, i + 1)) {
+                    result[i] = 1;
+                    break;
+                }
+            }
+        }
+        for (int j = 0; j < k; j++) {
+            int len = lengths[j];
+            int[] m = misfit[colors[j]];
+            long bit = 1L << colors[j];
+            for (int s = bw_lo[j], covered = 0; s <= bw_hi[j]; s++) {
+                int e = s + len;
+                if (m[e] - m[s] != 0) continue;
+                boolean left = (j == 0) ? fw.get(0, s) : (gap[j] == 0) ? fw.get(j, s) : (bg[s - 1] && fw.get(j, s - 1));
+                if (!left) continue;
+                boolean right = (j == k - 1) ? bw.get(k, e) : (gap[j + 1] == 0) ? bw.get(j + 1, e) : (bg[e] && bw.get(j + 1, e + 1));
+                if (!right) continue;
+                for (int i = Math.max(s, covered); i < e; i++) { // placements overlap, so each square is marked once per block
+                    result[i] |= bit;
+                }
+                covered = e;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (result[i] == 0) return false;
+        }
+        System.arraycopy(result, 0, out, 0, n);
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable colored nonogram puzzle: dimensions plus row and column clues, where every clue block has a color.
+ * <p>
+ * Colors are numbered {@code 1..}{@link #MAX_COLORS}; 0 is the background. Two adjacent blocks of the same color are
+ * separated by at least one background square, blocks of different colors may touch. Each line is given as a list of
+ * block lengths and a parallel list of block colors. Blocks of length 0 are dropped, so a binary puzzle's empty-line
+ * clue {@code [0]} works unchanged. Clues are copied on construction, so a puzzle can be shared freely between threads
+ * and solves.
+ */
+public class NonogramColorPuzzle {
+    public static final int MAX_COLORS = 63; // the candidate colors of a square, background included, fit in a long
+
+    private final int width, height;
+    private final List<List<Integer>> row_params, row_colors, column_params, column_colors;
+
+    /**
+     * Instantiates a puzzle
+     *
+     * @param width         number of columns
+     * @param height        number of rows
+     * @param row_params    row block lengths, one list per row
+     * @param row_colors    row block colors, parallel to the lengths
+     * @param column_params column block lengths, one list per column
+     * @param column_colors column block colors, parallel to the lengths
+     * @throws IllegalArgumentException if the clue lists do not match the dimensions or each other, or a color is out
+     *                                  of range
+     */
+    public NonogramColorPuzzle(int width, int height, List<? extends List<Integer>> row_params, List<? extends List<Integer>> row_colors,
+                               List<? extends List<Integer>> column_params, List<? extends List<Integer>> column_colors) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Dimensions must be positive: " + width + "x" + height);
+        }
+        if (row_params.size() != height || row_colors.size() != height || column_params.size() != width || column_colors.size() != width) {
+            throw new IllegalArgumentException("Expected " + height + " row and " + width + " column clues and colors");
+        }
+        this.width = width;
+        this.height = height;
+        List<List<Integer>> rows = new ArrayList<>(height), r_colors = new ArrayList<>(height);
+        for (int i = 0; i < height; i++) {
+            freeze(row_params.get(i), row_colors.get(i), "row " + (i + 1), rows, r_colors);
+        }
+        List<List<Integer>> columns = new ArrayList<>(width), c_colors = new ArrayList<>(width);
+        for (int j = 0; j < width; j++) {
+            freeze(column_params.get(j), column_colors.get(j), "column " + (j + 1), columns, c_colors);
+        }
+        this.row_params = Collections.unmodifiableList(rows);
+        this.row_colors = Collections.unmodifiableList(r_colors);
+        this.column_params = Collections.unmodifiableList(columns);
+        this.column_colors = Collections.unmodifiableList(c_colors);
+    }
+
+    /**
+     * Views a binary puzzle as a colored puzzle with a single color
+     *
+     * @param puzzle binary puzzle
+     * @return puzzle whose blocks all have color 1
+     */
+    public static NonogramColorPuzzle of(NonogramPuzzle puzzle) {
+        return new NonogramColorPuzzle(puzzle.getWidth(), puzzle.getHeight(), puzzle.getRowParams(), ones(puzzle.getRowParams()),
+                puzzle.getColumnParams(), ones(puzzle.getColumnParams()));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public List<List<Integer>> getRowParams() {
+        return row_params;
+    }
+
+    public List<List<Integer>> getRowColors() {
+        return row_colors;
+    }
+
+    public List<List<Integer>> getColumnParams() {
+        return column_params;
+    }
+
+    public List<List<Integer>> getColumnColors() {
+        return column_colors;
+    }
+
+    /**
+     * Copies the blocks of one line, dropping empty ones
+     */
+    private static void freeze(List<Integer> lengths, List<Integer> colors, String line, List<List<Integer>> to_lengths, List<List<Integer>> to_colors) {
+        if (lengths.size() != colors.size()) {
+            throw new IllegalArgumentException(line + ": " + lengths.size() + " blocks but " + colors.size() + " colors");
+        }
+        List<Integer> l = new ArrayList<>(lengths.size()), c = new ArrayList<>(colors.size());
+        for (int k = 0; k < lengths.size(); k++) {
+            int length = lengths.get(k), color = colors.get(k);
+            if (length < 0) throw new IllegalArgumentException(line + ": negative block length " + length);
+            if (length == 0) continue;
+            if (color < 1 || color > MAX_COLORS) throw new IllegalArgumentException(line + ": color " + color + " out of range 1.." + MAX_COLORS);
+            l.add(length);
+            c.add(color);
+        }
+        to_lengths.add(List.copyOf(l));
+        to_colors.add(List.copyOf(c));
+    }
+
+    private static List<List<Integer>> ones(List<List<Integer>> params) {
+        List<List<Integer>> colors = new ArrayList<>(params.size());
+        for (List<Integer> p : params) {
+            colors.add(Collections.nCopies(p.size(), 1));
+        }
+        return colors;
+    }
+}
@@ -0,0 +1,287 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Solver for colored nonograms.
+ * <p>
+ * Every square keeps a bitmask of the colors it can still take, bit 0 being the background, and every line is solved
+ * with {@link NonogramColorLineSolver}. Lines are scheduled, changes undone and squares branched on by the same
+ * {@link NonogramPropagator} as {@link NonogramSolver}, so a colored puzzle propagates in about the time of a binary
+ * one of the same size. Puzzles that line logic cannot finish are searched depth-first, branching on the square with
+ * the fewest candidate colors.
+ * <p>
+ * Options honored: search, solution limit, node limit, time limit, cancellation token and progress listener. The line
+ * engine, caches, probing, parallelism, statistics and trace only apply to binary puzzles and are ignored. A one-color
+ * puzzle, see {@link NonogramColorPuzzle#of(NonogramPuzzle)}, has the same solutions as the binary puzzle.
+ */
+public class NonogramColorSolver {
+
+    private NonogramColorSolver() {
+    }
+
+    /**
+     * Solves a colored puzzle. Keeps no state between calls and does not modify the puzzle or the options, so it can
+     * be called from any number of threads at once
+     *
+     * @param puzzle  puzzle
+     * @param options solver options
+     * @return final state and matrix, whose squares hold their color, 0 for the background and -1 if undecided;
+     *         without statistics
+     */
+    public static NonogramResult solve(NonogramColorPuzzle puzzle, NonogramSolverOptions options) {
+        ColorNonogram n = new ColorNonogram(puzzle, new NonogramControl(options));
+        n.propagate();
+        ColorSearch search = new ColorSearch(n, options);
+        if (n.state == NonogramSolver.STATE.SOLVED) search.found(n);
+        boolean exhaustive = n.state != NonogramSolver.STATE.UNSOLVED; // line logic only makes forced deductions
+        if (n.state == NonogramSolver.STATE.UNSOLVED && options.isSearch() && !n.control.stopped()) {
+            exhaustive = search.search();
+        }
+        boolean complete = n.state == NonogramSolver.STATE.IMPOSSIBLE || exhaustive
+                || (n.state == NonogramSolver.STATE.SOLVED && search.solutions.size() >= search.limit);
+        NonogramSolver.REASON reason = complete ? NonogramSolver.REASON.COMPLETE : n.control.getReason();
+        n.control.finish(n.getDecided(), n.width * n.height);
+        int[][] matrix = (n.state == NonogramSolver.STATE.SOLVED) ? search.solutions.get(0) : n.getMatrix();
+        return new NonogramResult(n.state, matrix, null, search.solutions, exhaustive, reason);
+    }
+
+    /**
+     * Solves a colored puzzle with the default options
+     *
+     * @param puzzle puzzle
+     * @return final state and matrix
+     * @see #solve(NonogramColorPuzzle, NonogramSolverOptions)
+     */
+    public static NonogramResult solve(NonogramColorPuzzle puzzle) {
+        return solve(puzzle, new NonogramSolverOptions());
+    }
+
+    /**
+     * Candidate colors of every square of a colored puzzle
+     */
+    private static class ColorNonogram extends NonogramPropagator {
+        private final int[][] lengths, colors; // blocks of every line, rows first
+        private final long[] cells; // candidate colors of every square, row * width + column
+        private final long[] row_buf, column_buf; // candidates of the line being solved
+        private int undecided; // squares with more than one candidate color
+
+        /**
+         * Instantiates the candidates of a puzzle, with every line queued
+         *
+         * @param puzzle  puzzle
+         * @param control stop conditions and progress
+         */
+        public ColorNonogram(NonogramColorPuzzle puzzle, NonogramControl control) {
+            super(puzzle.getWidth(), puzzle.getHeight(), control, NonogramSolver.STATE.UNSOLVED);
+            lengths = new int[height + width][];
+            colors = new int[height + width][];
+            for (int i = 0; i < height; i++) {
+                lengths[i] = toArray(puzzle.getRowParams().get(i));
+                colors[i] = toArray(puzzle.getRowColors().get(i));
+            }
+            for (int j = 0; j < width; j++) {
+                lengths[height + j] = toArray(puzzle.getColumnParams().get(j));
+                colors[height + j] = toArray(puzzle.getColumnColors().get(j));
+            }
+            // A square can only take the background or a color used by both its row and its column
+            long[] used = new long[height + width];
+            for (int l = 0; l < used.length; l++) {
+                used[l] = 1;
+                for (int c : colors[l]) {
+                    used[l] |= 1L << c;
+                }
+            }
+            cells = new long[width * height];
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    long m = used[i] & used[height + j];
+                    cells[i * width + j] = m;
+                    if (Long.bitCount(m) > 1) undecided++;
+                }
+            }
+            row_buf = new long[width];
+            column_buf = new long[height];
+            queue.addAll();
+        }
+
+        @Override
+        boolean solveLine(int l) {
+            return (l < height) ? updateRow(l) : updateColumn(l - height);
+        }
+
+        private boolean updateRow(int i) {
+            System.arraycopy(cells, i * width, row_buf, 0, width);
+            if (!NonogramColorLineSolver.solve(lengths[i], colors[i], row_buf, row_buf)) return false;
+            for (int j = 0; j < width; j++) {
+                if (row_buf[j] != cells[i * width + j]) {
+                    narrow(i * width + j, row_buf[j]);
+                    queue.add(height + j);
+                }
+            }
+            return true;
+        }
+
+        private boolean updateColumn(int j) {
+            for (int i = 0; i < height; i++) {
+                column_buf[i] = cells[i * width + j];
+            }
+            if (!NonogramColorLineSolver.solve(lengths[height + j], colors[height + j], column_buf, column_buf)) return false;
+            for (int i = 0; i < height; i++) {
+                if (column_buf[i] != cells[i * width + j]) {
+                    narrow(i * width + j, column_buf[i]);
+                    queue.add(i);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Replaces the candidates of a square by a subset, logging the old ones if there is a log
+         *
+         * @param cell square index
+         * @param mask new candidates, not empty
+         */
+        private void narrow(int cell, long mask) {
+            if (trail != null) trail.push(cell, cells[cell]);
+            if (Long.bitCount(cells[cell]) > 1 && Long.bitCount(mask) == 1) undecided--;
+            cells[cell] = mask;
+        }
+
+        @Override
+        int getDecided() {
+            return width * height - undecided;
+        }
+
+        @Override
+        void revert(int cell, long mask) {
+            if (Long.bitCount(cells[cell]) == 1 && Long.bitCount(mask) > 1) undecided++;
+            cells[cell] = mask;
+        }
+
+        @Override
+        long getValues(int cell) {
+            return cells[cell];
+        }
+
+        @Override
+        void choose(int cell, int color) {
+            narrow(cell, 1L << color);
+            queue.add(cell / width);
+            queue.add(height + cell % width);
+            propagate();
+        }
+
+        /**
+         * Picks the undecided square with the fewest candidate colors, the first one on ties
+         *
+         * @return square index
+         */
+        private int pickCell() {
+            int best = -1, best_count = Integer.MAX_VALUE;
+            for (int k = 0; k < cells.length; k++) {
+                int c = Long.bitCount(cells[k]);
+                if (c > 1 && c < best_count) {
+                    best = k;
+                    best_count = c;
+                    if (c == 2) break;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Converts the grid to a matrix
+         *
+         * @return matrix: the color of every decided square, 0 for the background, -1 if undecided
+         */
+        private int[][] getMatrix() {
+            int[][] m = new int[height][width];
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    long c = cells[i * width + j];
+                    m[i][j] = (Long.bitCount(c) == 1) ? Long.numberOfTrailingZeros(c) : -1;
+                }
+            }
+            return m;
+        }
+
+        private static int[] toArray(List<Integer> l) {
+            int[] a = new int[l.size()];
+            for (int k = 0; k < a.length; k++) {
+                a[k] = l.get(k);
+            }
+            return a;
+        }
+    }
+
+    /**
+     * Depth-first search for the solutions of a propagated colored puzzle. Branches on each candidate color of one
+     * square, the background last
+     */
+    private static class ColorSearch implements NonogramPropagator.Search<ColorNonogram> {
+        private final ColorNonogram nonogram;
+        private final long node_limit;
+        private final int limit; // distinct solutions to find
+        private long nodes = 0;
+        private final List<int[][]> solutions = new ArrayList<>();
+
+        /**
+         * Instantiates a search over a propagated puzzle
+         *
+         * @param n puzzle
+         * @param o solver options
+         */
+        public ColorSearch(ColorNonogram n, NonogramSolverOptions o) {
+            nonogram = n;
+            node_limit = o.getNodeLimit();
+            limit = o.getSolutionLimit();
+        }
+
+        /**
+         * Searches, then returns the puzzle to its propagated state. Marks it SOLVED if a solution was found,
+         * IMPOSSIBLE if the search was exhausted without one
+         *
+         * @return true if every solution was found
+         */
+        private boolean search() {
+            int root = nonogram.mark();
+            branch(nonogram);
+            boolean aborted = nonogram.control.getReason() != NonogramSolver.REASON.COMPLETE;
+            nonogram.undo(root);
+            if (!solutions.isEmpty()) nonogram.state = NonogramSolver.STATE.SOLVED;
+            else if (!aborted) nonogram.state = NonogramSolver.STATE.IMPOSSIBLE;
+            return !aborted && solutions.size() < limit;
+        }
+
+        @Override
+        public NonogramSolver.STATE branch(ColorNonogram n) {
+            if (n.state == NonogramSolver.STATE.SOLVED) {
+                found(n);
+                return NonogramSolver.STATE.SOLVED;
+            }
+            if (n.state == NonogramSolver.STATE.IMPOSSIBLE) return NonogramSolver.STATE.IMPOSSIBLE;
+            if (stopped()) return NonogramSolver.STATE.UNSOLVED;
+            return NonogramPropagator.branch(n, n.pickCell(), this);
+        }
+
+        /**
+         * Records a solved puzzle; the branches are disjoint, so every solution is found once
+         *
+         * @param n solved puzzle
+         */
+        private void found(ColorNonogram n) {
+            if (solutions.size() < limit) solutions.add(n.getMatrix());
+        }
+
+        @Override
+        public boolean tick() {
+            if (++nodes > node_limit) nonogram.control.stop(NonogramSolver.REASON.NODE_LIMIT);
+            return !stopped();
+        }
+
+        @Override
+        public boolean stopped() {
+            return solutions.size() >= limit || nonogram.control.stopped();
+        }
+    }
+}
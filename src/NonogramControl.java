@@ -0,0 +1,89 @@
+import java.util.function.DoubleConsumer;
+
+/**
+ * Stop conditions and progress reporting of a solve, shared by every copy of its nonogram and by the lines they
+ * solve, for both {@link NonogramSolver} and {@link NonogramColorSolver}. The checks are cheap, a volatile read and at
+ * most one clock read, so they run before every line solve.
+ */
+class NonogramControl {
+    private final NonogramCancellationToken token; // null for none
+    private final long time_limit; // nanoseconds, 0 for none
+    private final DoubleConsumer listener; // progress listener, null for none
+    private long deadline; // System.nanoTime() deadline, 0 for none
+    private volatile NonogramSolver.REASON reason = NonogramSolver.REASON.COMPLETE; // the first stop condition met, COMPLETE while none is
+    private volatile long next_report; // System.nanoTime() of the next progress report
+
+    /**
+     * Instantiates the control of a solve starting now
+     *
+     * @param o solver options
+     */
+    NonogramControl(NonogramSolverOptions o) {
+        token = o.getCancellationToken();
+        time_limit = o.getTimeLimit() * 1_000_000;
+        listener = o.getProgressListener();
+        restart();
+    }
+
+    /**
+     * Starts the time limit again and forgets a stop by a budget, e.g. for the next edit of a session. A cancelled
+     * token stays cancelled
+     */
+    void restart() {
+        long now = System.nanoTime();
+        deadline = (time_limit > 0) ? now + time_limit : 0;
+        next_report = now + NonogramSolver.PROGRESS_INTERVAL * 1_000_000;
+        reason = NonogramSolver.REASON.COMPLETE;
+    }
+
+    /**
+     * Checks the cancellation token and the time limit
+     *
+     * @return true once the solve is to stop
+     */
+    boolean stopped() {
+        if (reason != NonogramSolver.REASON.COMPLETE) return true;
+        if (token != null && token.isCancelled()) stop(NonogramSolver.REASON.CANCELLED);
+        else if (deadline != 0 && System.nanoTime() - deadline > 0) stop(NonogramSolver.REASON.TIME_LIMIT);
+        return reason != NonogramSolver.REASON.COMPLETE;
+    }
+
+    /**
+     * Stops the solve, unless it was already stopped for another reason
+     *
+     * @param r stop reason
+     */
+    synchronized void stop(NonogramSolver.REASON r) {
+        if (reason == NonogramSolver.REASON.COMPLETE) reason = r;
+    }
+
+    NonogramSolver.REASON getReason() {
+        return reason;
+    }
+
+    /**
+     * Reports the fraction decided if the progress interval has passed since the last report
+     *
+     * @param decided squares decided in the grid being propagated
+     * @param squares squares of the grid
+     */
+    void progress(int decided, int squares) {
+        if (listener == null || System.nanoTime() - next_report < 0) return;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - next_report < 0) return; // another thread just reported
+            next_report = now + NonogramSolver.PROGRESS_INTERVAL * 1_000_000;
+            listener.accept(decided / (double) squares);
+        }
+    }
+
+    /**
+     * Reports the fraction decided at the end of a solve
+     *
+     * @param decided squares decided in the final grid
+     * @param squares squares of the grid
+     */
+    synchronized void finish(int decided, int squares) {
+        if (listener != null) listener.accept(decided / (double) squares);
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Canonical fingerprint of a puzzle under the 8 symmetries of the grid.
+ * <p>
+ * A symmetry flips the rows, flips the columns and then transposes, each optionally. On the clues, flipping the rows
+ * reverses the order of the rows and each column's clues; flipping the columns reverses the order of the columns and
+ * each row's clues; transposing swaps rows and columns. The fingerprint is the smallest of the 8 transformed clue
+ * encodings, in the varint layout of a {@link NonogramFormat#BINARY} record, so mirrored and transposed copies of a
+ * puzzle share it. Two puzzles have equal fingerprints exactly when one is a symmetric copy of the other: the key is
+ * the encoding itself, not a hash of it.
+ */
+public class NonogramFingerprint {
+    private final byte[] key; // canonical clue encoding
+    private final int symmetry; // bit 0 flip rows, bit 1 flip columns, bit 2 transpose; maps the puzzle to the canonical form
+    private final int hash;
+
+    private NonogramFingerprint(byte[] key, int symmetry) {
+        this.key = key;
+        this.symmetry = symmetry;
+        this.hash = Arrays.hashCode(key);
+    }
+
+    /**
+     * Fingerprints a puzzle
+     *
+     * @param puzzle puzzle
+     * @return fingerprint
+     */
+    public static NonogramFingerprint of(NonogramPuzzle puzzle) {
+        byte[] best = null;
+        int best_symmetry = 0;
+        for (int s = 0; s < 8; s++) {
+            byte[] k = encode(puzzle, s);
+            if (best == null || Arrays.compareUnsigned(k, best) < 0) {
+                best = k;
+                best_symmetry = s;
+            }
+        }
+        return new NonogramFingerprint(best, best_symmetry);
+    }
+
+    /**
+     * Rebuilds a fingerprint from its key, e.g. one read back from disk. Its symmetry is the identity
+     *
+     * @param key canonical clue encoding
+     * @return fingerprint
+     */
+    static NonogramFingerprint ofKey(byte[] key) {
+        return new NonogramFingerprint(key, 0);
+    }
+
+    /**
+     * Returns the canonical clue encoding
+     *
+     * @return key, not to be modified
+     */
+    byte[] getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the symmetry mapping the puzzle onto its canonical form
+     *
+     * @return bit 0 flip rows, bit 1 flip columns, bit 2 transpose
+     */
+    public int getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Maps a matrix of the fingerprinted puzzle to the canonical orientation
+     *
+     * @param m matrix in the puzzle's orientation
+     * @return new matrix in the canonical orientation
+     */
+    public int[][] toCanonical(int[][] m) {
+        int[][] r = flip(m, (symmetry & 1) != 0, (symmetry & 2) != 0);
+        return ((symmetry & 4) != 0) ? transpose(r) : r;
+    }
+
+    /**
+     * Maps a matrix in the canonical orientation back to the fingerprinted puzzle
+     *
+     * @param m matrix in the canonical orientation
+     * @return new matrix in the puzzle's orientation
+     */
+    public int[][] fromCanonical(int[][] m) {
+        int[][] r = ((symmetry & 4) != 0) ? transpose(m) : m;
+        return flip(r, (symmetry & 1) != 0, (symmetry & 2) != 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return (o instanceof NonogramFingerprint) && Arrays.equals(key, ((NonogramFingerprint) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Encodes the clues of a puzzle after a symmetry
+     */
+    private static byte[] encode(NonogramPuzzle puzzle, int symmetry) {
+        List<List<Integer>> rows = transform(puzzle.getRowParams(), (symmetry & 1) != 0, (symmetry & 2) != 0);
+        List<List<Integer>> columns = transform(puzzle.getColumnParams(), (symmetry & 2) != 0, (symmetry & 1) != 0);
+        int width = puzzle.getWidth(), height = puzzle.getHeight();
+        if ((symmetry & 4) != 0) {
+            List<List<Integer>> t = rows;
+            rows = columns;
+            columns = t;
+            width = puzzle.getHeight();
+            height = puzzle.getWidth();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            NonogramWriter.writeVarint(out, width);
+            NonogramWriter.writeVarint(out, height);
+            for (List<List<Integer>> section : List.of(rows, columns)) {
+                for (List<Integer> clues : section) {
+                    NonogramWriter.writeVarint(out, clues.size());
+                    for (int c : clues) {
+                        NonogramWriter.writeVarint(out, c);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by a byte array
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Applies flips to one section of clues
+     *
+     * @param lines         clue lists of the section
+     * @param reverse_order true if the lines of the section are flipped
+     * @param reverse_clues true if the lines themselves are flipped
+     */
+    private static List<List<Integer>> transform(List<List<Integer>> lines, boolean reverse_order, boolean reverse_clues) {
+        List<List<Integer>> r = new ArrayList<>(lines.size());
+        for (List<Integer> l : lines) {
+            List<Integer> clues = new ArrayList<>(l.size());
+            for (int c : l) {
+                if (c > 0) clues.add(c);
+            }
+            if (reverse_clues) Collections.reverse(clues);
+            r.add(clues);
+        }
+        if (reverse_order) Collections.reverse(r);
+        return r;
+    }
+
+    private static int[][] flip(int[][] m, boolean rows, boolean columns) {
+        int h = m.length, w = m[0].length;
+        int[][] r = new int[h][w];
+        for (int i = 0; i < h; i++) {
+            for (int j = 0; j < w; j++) {
+                r[rows ? h - 1 - i : i][columns ? w - 1 - j : j] = m[i][j];
+            }
+        }
+        return r;
+    }
+
+    private static int[][] transpose(int[][] m) {
+        int h = m.length, w = m[0].length;
+        int[][] r = new int[w][h];
+        for (int i = 0; i < h; i++) {
+            for (int j = 0; j < w; j++) {
+                r[j][i] = m[i][j];
+            }
+        }
+        return r;
+    }
+}
@@ -0,0 +1,25 @@
+import java.nio.file.Path;
+
+/**
+ * Puzzle file formats understood by {@link NonogramReader} and {@link NonogramWriter}.
+ */
+public enum NonogramFormat {
+    NON, // Steve Simpson's keyword format: width, height, rows and columns sections of comma-separated clues
+    CWD, // row count, column count, then one line of space-separated clues per row and per column
+    BINARY; // header followed by length-prefixed records of varint-encoded dimensions and clues
+
+    /**
+     * Picks a format from a file extension: .non, .cwd or .nonb
+     *
+     * @param path file
+     * @return format
+     * @throws IllegalArgumentException for an unknown extension
+     */
+    public static NonogramFormat fromPath(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".non")) return NON;
+        if (name.endsWith(".cwd")) return CWD;
+        if (name.endsWith(".nonb")) return BINARY;
+        throw new IllegalArgumentException("Unknown puzzle format: " + path);
+    }
+}
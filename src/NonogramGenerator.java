@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Generates random puzzles that have exactly one solution.
+ * <p>
+ * Candidate k is the puzzle of a random picture whose squares are filled with the given density, drawn from a random
+ * generator seeded by the seed and k alone. A candidate is accepted if it has a unique solution that line logic finds
+ * within a difficulty cap: with a node limit of 0 line logic alone must solve it, otherwise the search may branch up
+ * to that many nodes, probes included, to finish and prove it unique. Candidates are tested concurrently but handed
+ * out in candidate order, so a seed always yields the same puzzles.
+ */
+public class NonogramGenerator {
+    private final int width, height;
+    private final double density; // probability of a square being filled
+    private final long seed;
+    private final NonogramSolverOptions options; // uniqueness test
+
+    /**
+     * Instantiates a generator of puzzles that line logic alone solves, tested with the overlap engine
+     *
+     * @param width   number of columns
+     * @param height  number of rows
+     * @param density probability of a square being filled
+     * @param seed    random seed
+     */
+    public NonogramGenerator(int width, int height, double density, long seed) {
+        this(width, height, density, seed, 0, new NonogramSolverOptions().setEngine(NonogramSolver.ENGINE.OVERLAP));
+    }
+
+    /**
+     * Instantiates a generator
+     *
+     * @param width      number of columns
+     * @param height     number of rows
+     * @param density    probability of a square being filled
+     * @param seed       random seed
+     * @param node_limit most search nodes a puzzle may need, 0 for line logic alone
+     * @param options    solver options for the uniqueness test, e.g. the line engine. The search, solution limit, node
+     *                   limit, caches and statistics are overridden
+     */
+    public NonogramGenerator(int width, int height, double density, long seed, long node_limit, NonogramSolverOptions options) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("Dimensions must be positive: " + width + "x" + height);
+        if (!(density >= 0 && density <= 1)) throw new IllegalArgumentException("Density must be within [0, 1]: " + density);
+        if (node_limit < 0) throw new IllegalArgumentException("Node limit must not be negative: " + node_limit);
+        this.width = width;
+        this.height = height;
+        this.density = density;
+        this.seed = seed;
+        this.options = new NonogramSolverOptions(options).setSearch(node_limit > 0).setSolutionLimit(2)
+                .setNodeLimit((node_limit > 0) ? node_limit : Long.MAX_VALUE).setLineCache(null).setResultCache(null).setStats(false);
+    }
+
+    /**
+     * Draws a candidate picture
+     *
+     * @param k candidate index
+     * @return picture: 1 denotes filled, 0 denotes unfilled
+     */
+    public int[][] picture(long k) {
+        SplittableRandom random = new SplittableRandom(seed + k * 0x9E3779B97F4A7C15L);
+        int[][] m = new int[height][width];
+        for (int[] row : m) {
+            for (int j = 0; j < width; j++) {
+                row[j] = (random.nextDouble() < density) ? 1 : 0;
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Tests a puzzle against the uniqueness filter
+     *
+     * @param puzzle puzzle
+     * @return true if it has a unique solution within the difficulty cap
+     */
+    public boolean accepts(NonogramPuzzle puzzle) {
+        NonogramResult r = NonogramSolver.solve(puzzle, options);
+        return r.isUnique() && r.getStopReason() == NonogramSolver.REASON.COMPLETE;
+    }
+
+    /**
+     * Generates puzzles on a pool of threads, handing each accepted one to a sink in candidate order. The sink is
+     * called by one thread at a time, on the worker threads
+     *
+     * @param count       puzzles to generate
+     * @param attempts    most candidates to try, so a density that yields no unique puzzle still ends
+     * @param parallelism number of threads
+     * @param sink        receives the accepted puzzles
+     * @return number of candidates tried
+     * @throws InterruptedException if interrupted while waiting for the workers
+     * @throws RuntimeException     the first failure of a worker or of the sink
+     */
+    public long generate(int count, long attempts, int parallelism, Consumer<NonogramPuzzle> sink) throws InterruptedException {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        Emitter emitter = new Emitter(count, sink);
+        AtomicLong next = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> workers = new ArrayList<>(parallelism);
+            for (int t = 0; t < parallelism; t++) {
+                workers.add(executor.submit(() -> {
+                    for (long k = next.getAndIncrement(); k < attempts && !emitter.isDone(); k = next.getAndIncrement()) {
+                        NonogramPuzzle p = NonogramPuzzle.of(picture(k));
+                        emitter.offer(k, accepts(p) ? p : null);
+                    }
+                }));
+            }
+            for (Future<?> w : workers) {
+                try {
+                    w.get();
+                } catch (ExecutionException e) {
+                    emitter.stop();
+                    Throwable t = e.getCause();
+                    if (t instanceof RuntimeException) throw (RuntimeException) t;
+                    if (t instanceof Error) throw (Error) t;
+                    throw new RuntimeException(t);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return emitter.getTried();
+    }
+
+    /**
+     * Puts the tested candidates back in order and passes the accepted ones on until enough are found
+     */
+    private static class Emitter {
+        private static final NonogramPuzzle REJECTED = new NonogramPuzzle(1, 1, List.of(List.of()), List.of(List.of()));
+        private final int count;
+        private final Consumer<NonogramPuzzle> sink;
+        private final Map<Long, NonogramPuzzle> pending = new HashMap<>(); // tested candidates after a gap
+        private long next = 0; // candidate to emit next
+        private int accepted = 0;
+        private volatile boolean done;
+
+        Emitter(int count, Consumer<NonogramPuzzle> sink) {
+            this.count = count;
+            this.sink = sink;
+            done = count <= 0;
+        }
+
+        /**
+         * Records a tested candidate and emits every candidate it completes the order of
+         *
+         * @param k      candidate index
+         * @param puzzle accepted puzzle, null if rejected
+         */
+        synchronized void offer(long k, NonogramPuzzle puzzle) {
+            if (done) return;
+            pending.put(k, (puzzle != null) ? puzzle : REJECTED);
+            for (NonogramPuzzle p = pending.remove(next); p != null; p = pending.remove(next)) {
+                next++;
+                if (p == REJECTED) continue;
+                try {
+                    sink.accept(p);
+                } catch (RuntimeException | Error e) {
+                    done = true;
+                    throw e;
+                }
+                if (++accepted == count) {
+                    done = true;
+                    pending.clear();
+                    return;
+                }
+            }
+        }
+
+        synchronized void stop() {
+            done = true;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Counts the candidates emitted in order, i.e. tried up to the last accepted puzzle
+         */
+        synchronized long getTried() {
+            return next;
+        }
+    }
+}
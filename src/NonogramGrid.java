@@ -0,0 +1,288 @@
+/**
+ * Bitset-packed nonogram grid.
+ * <p>
+ * Every row and every column keeps two bitmasks, known-filled and known-empty, packed into {@code long} words. Both
+ * orientations are updated together by {@link #set(int, int, int)}, so a column is read without transposing the grid.
+ */
+public class NonogramGrid {
+    private final int width, height;
+    private final int rowWords, columnWords; // words per row mask and per column mask
+    private final long[] rowFilled, rowEmpty; // row-major: row i occupies words [i * rowWords, (i + 1) * rowWords)
+    private final long[] columnFilled, columnEmpty; // column-major: column j occupies words [j * columnWords, (j + 1) * columnWords)
+    private int decided = 0; // number of decided squares
+
+    /**
+     * Instantiates a grid from a matrix
+     *
+     * @param m matrix: 1 denotes filled, 0 denotes unfilled, -1 denotes undecided
+     */
+    public NonogramGrid(int[][] m) {
+        this(m[0].length, m.length);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (m[i][j] != -1) set(i, j, m[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Instantiates an undecided grid
+     *
+     * @param width  number of columns
+     * @param height number of rows
+     */
+    public NonogramGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        rowWords = words(width);
+        columnWords = words(height);
+        rowFilled = new long[height * rowWords];
+        rowEmpty = new long[height * rowWords];
+        columnFilled = new long[width * columnWords];
+        columnEmpty = new long[width * columnWords];
+    }
+
+    /**
+     * Copies a grid
+     *
+     * @param g grid to copy
+     */
+    public NonogramGrid(NonogramGrid g) {
+        width = g.width;
+        height = g.height;
+        rowWords = g.rowWords;
+        columnWords = g.columnWords;
+        rowFilled = g.rowFilled.clone();
+        rowEmpty = g.rowEmpty.clone();
+        columnFilled = g.columnFilled.clone();
+        columnEmpty = g.columnEmpty.clone();
+        decided = g.decided;
+    }
+
+    /**
+     * Returns the value of a square
+     *
+     * @param i row
+     * @param j column
+     * @return 1 if filled, 0 if unfilled, -1 if undecided
+     */
+    public int get(int i, int j) {
+        if (getBit(rowFilled, i * rowWords, j)) return 1;
+        if (getBit(rowEmpty, i * rowWords, j)) return 0;
+        return -1;
+    }
+
+    /**
+     * Decides an undecided square in both its row and its column
+     *
+     * @param i row
+     * @param j column
+     * @param v 1 for filled, 0 for unfilled
+     */
+    public void set(int i, int j, int v) {
+        if (v == 1) {
+            setBit(rowFilled, i * rowWords, j);
+            setBit(columnFilled, j * columnWords, i);
+        } else {
+            setBit(rowEmpty, i * rowWords, j);
+            setBit(columnEmpty, j * columnWords, i);
+        }
+        decided++;
+    }
+
+    /**
+     * Returns a decided square to undecided in both its row and its column
+     *
+     * @param i row
+     * @param j column
+     */
+    public void clear(int i, int j) {
+        if (get(i, j) == -1) return;
+        clearBit(rowFilled, i * rowWords, j);
+        clearBit(rowEmpty, i * rowWords, j);
+        clearBit(columnFilled, j * columnWords, i);
+        clearBit(columnEmpty, j * columnWords, i);
+        decided--;
+    }
+
+    /**
+     * Copies the masks of a row
+     *
+     * @param i      row
+     * @param filled destination for the known-filled mask
+     * @param empty  destination for the known-empty mask
+     */
+    public void row(int i, long[] filled, long[] empty) {
+        System.arraycopy(rowFilled, i * rowWords, filled, 0, rowWords);
+        System.arraycopy(rowEmpty, i * rowWords, empty, 0, rowWords);
+    }
+
+    /**
+     * Copies the masks of a column
+     *
+     * @param j      column
+     * @param filled destination for the known-filled mask
+     * @param empty  destination for the known-empty mask
+     */
+    public void column(int j, long[] filled, long[] empty) {
+        System.arraycopy(columnFilled, j * columnWords, filled, 0, columnWords);
+        System.arraycopy(columnEmpty, j * columnWords, empty, 0, columnWords);
+    }
+
+    /**
+     * Converts the grid back into a matrix
+     *
+     * @return matrix: 1 denotes filled, 0 denotes unfilled, -1 denotes undecided
+     */
+    public int[][] toMatrix() {
+        int[][] m = new int[height][width];
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                m[i][j] = get(i, j);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Counts the decided squares of a row
+     *
+     * @param i row
+     * @return number of decided squares
+     */
+    public int rowDecided(int i) {
+        int n = 0;
+        for (int w = i * rowWords; w < (i + 1) * rowWords; w++) {
+            n += Long.bitCount(rowFilled[w] | rowEmpty[w]);
+        }
+        return n;
+    }
+
+    /**
+     * Counts the decided squares of a column
+     *
+     * @param j column
+     * @return number of decided squares
+     */
+    public int columnDecided(int j) {
+        int n = 0;
+        for (int w = j * columnWords; w < (j + 1) * columnWords; w++) {
+            n += Long.bitCount(columnFilled[w] | columnEmpty[w]);
+        }
+        return n;
+    }
+
+    /**
+     * Copies the known-filled masks of every row, which identify a solved grid
+     *
+     * @return row-major known-filled words
+     */
+    public long[] copyFilled() {
+        return rowFilled.clone();
+    }
+
+    public boolean isSolved() {
+        return decided == width * height;
+    }
+
+    public int getDecided() {
+        return decided;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRowWords() {
+        return rowWords;
+    }
+
+    public int getColumnWords() {
+        return columnWords;
+    }
+
+    /**
+     * Number of words needed to hold a line
+     *
+     * @param length line length
+     * @return number of words
+     */
+    public static int words(int length) {
+        return (length + 63) >>> 6;
+    }
+
+    /**
+     * Tests a bit of a mask stored at an offset
+     *
+     * @param bits   words
+     * @param offset first word of the mask
+     * @param index  bit index within the mask
+     * @return bit value
+     */
+    public static boolean getBit(long[] bits, int offset, int index) {
+        return (bits[offset + (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets a bit of a mask stored at an offset
+     *
+     * @param bits   words
+     * @param offset first word of the mask
+     * @param index  bit index within the mask
+     */
+    public static void setBit(long[] bits, int offset, int index) {
+        bits[offset + (index >>> 6)] |= 1L << index;
+    }
+
+    /**
+     * Clears a bit of a mask stored at an offset
+     *
+     * @param bits   words
+     * @param offset first word of the mask
+     * @param index  bit index within the mask
+     */
+    public static void clearBit(long[] bits, int offset, int index) {
+        bits[offset + (index >>> 6)] &= ~(1L << index);
+    }
+
+    /**
+     * Sets the bits {@code [from, to)} of a mask stored at an offset
+     *
+     * @param bits   words
+     * @param offset first word of the mask
+     * @param from   first bit, inclusive
+     * @param to     last bit, exclusive
+     */
+    public static void setRange(long[] bits, int offset, int from, int to) {
+        if (from >= to) return;
+        int first = from >>> 6, last = (to - 1) >>> 6;
+        long firstMask = -1L << from, lastMask = -1L >>> -to;
+        if (first == last) {
+            bits[offset + first] |= firstMask & lastMask;
+            return;
+        }
+        bits[offset + first] |= firstMask;
+        for (int w = first + 1; w < last; w++) {
+            bits[offset + w] = -1L;
+        }
+        bits[offset + last] |= lastMask;
+    }
+
+    /**
+     * Returns the mask of the valid bits in a word of a line
+     *
+     * @param length line length
+     * @param word   word index
+     * @return mask of the bits below length
+     */
+    public static long lengthMask(int length, int word) {
+        int rest = length - (word << 6);
+        if (rest >= 64) return -1L;
+        if (rest <= 0) return 0L;
+        return -1L >>> (64 - rest);
+    }
+}
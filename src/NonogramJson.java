@@ -0,0 +1,235 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader and string quoting for {@link NonogramServer}.
+ * <p>
+ * Values are parsed into {@link Map} (objects, in key order), {@link List} (arrays), {@link Long} or {@link Double}
+ * (numbers), {@link String}, {@link Boolean} and null. Only what the server needs is supported; there is no data
+ * binding.
+ */
+public class NonogramJson {
+    private static final int MAX_DEPTH = 64; // nesting limit, so hostile input cannot exhaust the stack
+
+    private final String s;
+    private int pos = 0;
+
+    private NonogramJson(String s) {
+        this.s = s;
+    }
+
+    /**
+     * Parses a JSON document
+     *
+     * @param s document
+     * @return parsed value
+     * @throws IllegalArgumentException if the document is not valid JSON
+     */
+    public static Object parse(String s) {
+        NonogramJson p = new NonogramJson(s);
+        Object v = p.value(0);
+        p.skipSpace();
+        if (p.pos < s.length()) throw p.error("Trailing characters");
+        return v;
+    }
+
+    /**
+     * Quotes a string as a JSON string literal
+     *
+     * @param v string
+     * @return literal, including the quotes
+     */
+    public static String quote(String v) {
+        StringBuilder sb = new StringBuilder(v.length() + 2).append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private Object value(int depth) {
+        if (depth > MAX_DEPTH) throw error("Nesting too deep");
+        skipSpace();
+        if (pos >= s.length()) throw error("Unexpected end of input");
+        char c = s.charAt(pos);
+        switch (c) {
+            case '{':
+                return object(depth);
+            case '[':
+                return array(depth);
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> object(int depth) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            return m;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') throw error("Expected a key");
+            String key = string();
+            skipSpace();
+            expect(':');
+            m.put(key, value(depth + 1));
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+                continue;
+            }
+            expect('}');
+            return m;
+        }
+    }
+
+    private List<Object> array(int depth) {
+        List<Object> l = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            return l;
+        }
+        while (true) {
+            l.add(value(depth + 1));
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+                continue;
+            }
+            expect(']');
+            return l;
+        }
+    }
+
+    private String string() {
+        pos++;
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos >= s.length()) throw error("Unterminated string");
+            char c = s.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= s.length()) throw error("Unterminated string");
+            char e = s.charAt(pos++);
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append(e);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > s.length()) throw error("Truncated escape");
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException x) {
+                        throw error("Invalid escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw error("Invalid escape '\\" + e + "'");
+            }
+        }
+    }
+
+    private Object number() {
+        int start = pos;
+        boolean integral = true;
+        if (peek() == '-') pos++;
+        while (pos < s.length()) {
+            char c = s.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                pos++;
+            } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                integral = false;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String n = s.substring(start, pos);
+        try {
+            return integral ? (Object) Long.parseLong(n) : (Object) Double.parseDouble(n);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + n);
+        }
+    }
+
+    private Object literal(String word, Object v) {
+        if (!s.startsWith(word, pos)) throw error("Unexpected literal");
+        pos += word.length();
+        return v;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("Expected '" + c + "'");
+        pos++;
+    }
+
+    private char peek() {
+        return (pos < s.length()) ? s.charAt(pos) : '\0';
+    }
+
+    private void skipSpace() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + pos);
+    }
+}
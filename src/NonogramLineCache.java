@@ -0,0 +1,175 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of line-solver results.
+ * <p>
+ * Entries are keyed by the clues, the line length and the known-filled and known-empty masks, and hold either the
+ * forced masks or a contradiction. The cache is split into independently locked segments, each evicting its least
+ * recently used entry once full, so one cache can be shared by every solve of a batch.
+ */
+public class NonogramLineCache {
+    private static final long[] IMPOSSIBLE = new long[0]; // marks a contradiction
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    /**
+     * Instantiates a cache. The capacity is split across the segments, so a segment may evict while others still have
+     * room, but the cache never holds more entries than the capacity
+     *
+     * @param capacity maximum number of entries, at least one per segment, i.e. 16
+     * @throws IllegalArgumentException if the capacity is below 16
+     */
+    public NonogramLineCache(int capacity) {
+        if (capacity < SEGMENTS) throw new IllegalArgumentException("Capacity must be at least " + SEGMENTS + ": " + capacity);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity / SEGMENTS + ((i < capacity % SEGMENTS) ? 1 : 0));
+        }
+    }
+
+    /**
+     * Looks up a line
+     *
+     * @param key       line key
+     * @param outFilled destination for the cached known-filled mask
+     * @param outEmpty  destination for the cached known-empty mask
+     * @return null on a miss, otherwise true for a cached result or false for a cached contradiction
+     */
+    public Boolean get(Key key, long[] outFilled, long[] outEmpty) {
+        long[] v = segment(key).get(key);
+        if (v == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (v == IMPOSSIBLE) return false;
+        int words = v.length / 2;
+        System.arraycopy(v, 0, outFilled, 0, words);
+        System.arraycopy(v, words, outEmpty, 0, words);
+        return true;
+    }
+
+    /**
+     * Stores the result of a line
+     *
+     * @param key    line key
+     * @param filled forced known-filled mask, ignored on contradiction
+     * @param empty  forced known-empty mask, ignored on contradiction
+     * @param solved false if the line is a contradiction
+     */
+    public void put(Key key, long[] filled, long[] empty, boolean solved) {
+        long[] v = IMPOSSIBLE;
+        if (solved) {
+            int words = NonogramGrid.words(key.length);
+            v = new long[2 * words];
+            System.arraycopy(filled, 0, v, 0, words);
+            System.arraycopy(empty, 0, v, words, words);
+        }
+        segment(key).put(key, v);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Counts the cached entries
+     *
+     * @return number of entries
+     */
+    public int size() {
+        int n = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                n += s.size();
+            }
+        }
+        return n;
+    }
+
+    private Segment segment(Key key) {
+        return segments[(key.hash ^ (key.hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Normalized line key: the non-zero clues, the line length and copies of the known masks
+     */
+    public static class Key {
+        private final int[] clues;
+        private final int length;
+        private final long[] filled, empty;
+        private final int hash;
+
+        /**
+         * Instantiates a key, copying the masks
+         *
+         * @param clues  segment lengths, zero-length segments are dropped
+         * @param length line length
+         * @param filled known-filled mask
+         * @param empty  known-empty mask
+         */
+        public Key(int[] clues, int length, long[] filled, long[] empty) {
+            this.clues = Arrays.stream(clues).filter(c -> c > 0).toArray();
+            this.length = length;
+            int words = NonogramGrid.words(length);
+            this.filled = Arrays.copyOf(filled, words);
+            this.empty = Arrays.copyOf(empty, words);
+            hash = 31 * (31 * (31 * Arrays.hashCode(this.clues) + length) + Arrays.hashCode(this.filled)) + Arrays.hashCode(this.empty);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return hash == k.hash && length == k.length && Arrays.equals(clues, k.clues) && Arrays.equals(filled, k.filled) && Arrays.equals(empty, k.empty);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Access-ordered map evicting its least recently used entry once full
+     */
+    private class Segment extends LinkedHashMap<Key, long[]> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public synchronized long[] get(Object key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized long[] put(Key key, long[] value) {
+            return super.put(key, value);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, long[]> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    }
+}
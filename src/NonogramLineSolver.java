@@ -0,0 +1,148 @@
+/**
+ * Polynomial-time line solver.
+ * <p>
+ * Settles every clue as far left and as far right as the known squares allow, using a forward and a backward
+ * reachability table over (clues placed, squares covered). A square is forced when every complete placement agrees on
+ * it. Segment j can only start within the slack of the line, i.e. the squares left over when every segment is packed
+ * to one side, so the tables are kept as bands of slack + 1 entries per segment. Runs in O(length + clues * slack)
+ * time and space, which keeps long, densely clued lines cheap.
+ */
+public class NonogramLineSolver {
+
+    private NonogramLineSolver() {
+    }
+
+    /**
+     * Solves a line against its clues
+     *
+     * @param clues     lengths of the filled segments, in order. Zero-length segments are ignored
+     * @param n         line length
+     * @param filled    known-filled mask
+     * @param empty     known-empty mask
+     * @param outFilled destination for the new known-filled mask, may be the same array as filled
+     * @param outEmpty  destination for the new known-empty mask, may be the same array as empty
+     * @return false if no placement matches the known squares, in which case the destinations are left untouched
+     */
+    public static boolean solve(int[] clues, int n, long[] filled, long[] empty, long[] outFilled, long[] outEmpty) {
+        boolean[] one = new boolean[n]; // known-filled squares, unpacked for the inner loops
+        for (int i = 0; i < n; i++) {
+            one[i] = NonogramGrid.getBit(filled, 0, i);
+        }
+        int k = 0;
+        for (int c : clues) {
+            if (c > 0) k++;
+        }
+        int[] c = new int[k];
+        for (int i = 0, j = 0; i < clues.length; i++) {
+            if (clues[i] > 0) c[j++] = clues[i];
+        }
+
+        // Prefix counts of known unfilled squares, used to test whether a segment fits in constant time
+        int[] zeros = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            zeros[i + 1] = zeros[i] + (NonogramGrid.getBit(empty, 0, i) ? 1 : 0);
+        }
+
+        // Segment j can only start within the slack of its left-packed position, so each table row is a band of
+        // slack + 1 entries: min_end[j] is the fewest squares the first j segments need, min_rest[j] the fewest squares
+        // segments j..k-1 need
+        int[] min_end = new int[k + 1], min_rest = new int[k + 1];
+        for (int j = 1; j <= k; j++) {
+            min_end[j] = min_end[j - 1] + c[j - 1] + ((j > 1) ? 1 : 0);
+        }
+        for (int j = k - 1; j >= 0; j--) {
+            min_rest[j] = min_rest[j + 1] + c[j] + ((j < k - 1) ? 1 : 0);
+        }
+        if (min_rest[0] > n) return false;
+        int[] fw_lo = new int[k + 1], fw_hi = new int[k + 1], bw_lo = new int[k + 1], bw_hi = new int[k + 1];
+        for (int j = 0; j <= k; j++) {
+            boolean inner = j > 0 && j < k; // a gap separates the placed segments from the rest
+            fw_lo[j] = min_end[j];
+            fw_hi[j] = n - min_rest[j] - (inner ? 1 : 0);
+            bw_lo[j] = min_end[j] + (inner ? 1 : 0);
+            bw_hi[j] = n - min_rest[j];
+        }
+
+        // fw[j][i]: the first j segments fit into squares [0, i)
+        NonogramBand fw = new NonogramBand(fw_lo, fw_hi);
+        fw.set(0, 0, true);
+        for (int i = 1; i <= fw_hi[0]; i++) {
+            fw.set(0, i, fw.get(0, i - 1) && !one[i - 1]);
+        }
+        for (int j = 1; j <= k; j++) {
+            int len = c[j - 1];
+            for (int i = fw_lo[j]; i <= fw_hi[j]; i++) {
+                boolean r = fw.get(j, i - 1) && !one[i - 1]; // square i - 1 left unfilled
+                int s = i - len;
+                if (!r && zeros[i] - zeros[s] == 0) { // segment j - 1 ends exactly at i
+                    r = (j == 1) ? fw.get(0, s) : (s >= 1 && !one[s - 1] && fw.get(j - 1, s - 1));
+                }
+                fw.set(j, i, r);
+            }
+        }
+        if (!fw.get(k, n)) return false;
+
+        // bw[j][i]: segments j..k-1 fit into squares [i, n)
+        NonogramBand bw = new NonogramBand(bw_lo, bw_hi);
+        bw.set(k, n, true);
+        for (int i = n - 1; i >= bw_lo[k]; i--) {
+            bw.set(k, i, bw.get(k, i + 1) && !one[i]);
+        }
+        for (int j = k - 1; j >= 0; j--) {
+            int len = c[j];
+            for (int i = bw_hi[j]; i >= bw_lo[j]; i--) {
+                boolean r = bw.get(j, i + 1) && !one[i]; // square i left unfilled
+                int e = i + len;
+                if (!r && zeros[e] - zeros[i] == 0) { // segment j starts exactly at i
+                    r = (j == k - 1) ? bw.get(k, e) : (e < n && !one[e] && bw.get(j + 1, e + 1));
+                }
+                bw.set(j, i, r);
+            }
+        }
+
+        // Per-square reachability: unfilled between two settled halves, or covered by a placeable segment
+        boolean[] canEmpty = new boolean[n];
+        int[] fill = new int[n + 1]; // difference array of segment coverage
+        for (int i = 0, first = 0; i < n; i++) {
+            while (fw_hi[first] < i) first++; // the bands of earlier rows end before i
+            if (one[i]) continue;
+            for (int j = first; j <= k && fw_lo[j] <= i; j++) {
+                if (fw.get(j, i) && bw.get(j, i + 1)) {
+                    canEmpty[i] = true;
+                    break;
+                }
+            }
+        }
+        for (int j = 0; j < k; j++) {
+            int len = c[j];
+            for (int s = bw_lo[j]; s <= bw_hi[j]; s++) {
+                int e = s + len;
+                if (zeros[e] - zeros[s] != 0) continue;
+                boolean left = (j == 0) ? fw.get(0, s) : (s >= 1 && !one[s - 1] && fw.get(j, s - 1));
+                if (!left) continue;
+                boolean right = (j == k - 1) ? bw.get(k, e) : (e < n && !one[e] && bw.get(j + 1, e + 1));
+                if (!right) continue;
+                fill[s]++;
+                fill[e]--;
+            }
+        }
+
+        boolean[] canFill = new boolean[n];
+        int covered = 0;
+        for (int i = 0; i < n; i++) {
+            covered += fill[i];
+            canFill[i] = covered > 0;
+            if (!canFill[i] && !canEmpty[i]) return false;
+        }
+        int words = NonogramGrid.words(n);
+        for (int w = 0; w < words; w++) {
+            outFilled[w] = 0;
+            outEmpty[w] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!canEmpty[i]) NonogramGrid.setBit(outFilled, 0, i);
+            else if (!canFill[i]) NonogramGrid.setBit(outEmpty, 0, i);
+        }
+        return true;
+    }
+}
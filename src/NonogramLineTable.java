@@ -0,0 +1,149 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide tables of the placements of short lines.
+ * <p>
+ * For a clue on a line of at most {@value #MAX_LENGTH} squares, every placement fits in one int, and there are at most
+ * a few thousand of them. The table of a clue is built once, on its first use, and shared by every solve. Solving the
+ * line then takes one pass over the table: a placement is kept when it fills no known-empty square and leaves no
+ * known-filled square empty, and the kept placements are folded into an AND and an OR of one int each. No candidate
+ * lists, boxed parameters or cache keys are built.
+ * <p>
+ * Memory is bounded: once the tables hold {@value #CAPACITY} placements, clues without a table fall back to the general
+ * line engines. The memory in use is reported by {@link #getBytes()} and through {@link NonogramMetrics}.
+ */
+public class NonogramLineTable {
+    public static final int MAX_LENGTH = 20; // longest line with a table
+    public static final int CAPACITY = 1 << 22; // most placements kept over all tables, 16 MiB
+    private static final NonogramLineTable INSTANCE = new NonogramLineTable();
+
+    private final ConcurrentHashMap<Long, int[]> tables = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong(); // placements kept over all tables
+
+    private NonogramLineTable() {
+    }
+
+    public static NonogramLineTable getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the table of a clue, building it on first use
+     *
+     * @param clues  segment lengths, zeros are ignored
+     * @param length line length
+     * @return every placement, bit i set if square i is filled, or null if the line is too long or the tables are full
+     */
+    public int[] placements(int[] clues, int length) {
+        if (length > MAX_LENGTH) return null;
+        // The line length and up to 10 non-zero clues of at most 20 take 5 bits each
+        long key = length;
+        int sum = 0, k = 0;
+        for (int c : clues) {
+            if (c == 0) continue;
+            key = (key << 5) | c;
+            sum += c;
+            k++;
+        }
+        if (sum + k - 1 > length) return null; // cannot be placed at all, left to the engines to report
+        int[] table = tables.get(key);
+        if (table != null || size.get() >= CAPACITY) return table;
+        int[] blocks = new int[k];
+        k = 0;
+        for (int c : clues) {
+            if (c != 0) blocks[k++] = c;
+        }
+        int[] built = build(blocks, length);
+        if (size.addAndGet(built.length) > CAPACITY) {
+            size.addAndGet(-built.length);
+            return null;
+        }
+        table = tables.putIfAbsent(key, built);
+        if (table == null) return built;
+        size.addAndGet(-built.length); // another thread built it first
+        return table;
+    }
+
+    /**
+     * Solves a line against its table
+     *
+     * @param placements   table of the clue, see {@link #placements(int[], int)}
+     * @param known_filled current known-filled mask, left unchanged
+     * @param known_empty  current known-empty mask, left unchanged
+     * @param filled       destination for the forced known-filled mask
+     * @param empty        destination for the forced known-empty mask
+     * @param length       line length
+     * @return false if no placement matches the known squares, in which case the destinations are left untouched
+     */
+    public static boolean solve(int[] placements, int length, long[] known_filled, long[] known_empty, long[] filled, long[] empty) {
+        int f = (int) known_filled[0], e = (int) known_empty[0], all = (int) NonogramGrid.lengthMask(length, 0);
+        int undecided = all & ~(f | e);
+        int common = all, union = 0;
+        boolean found = false;
+        for (int p : placements) {
+            if ((p & e) != 0 || (f & ~p) != 0) continue;
+            common &= p;
+            union |= p;
+            found = true;
+            if (((common | ~union) & undecided) == 0) break; // no undecided square can be forced any more
+        }
+        if (!found) return false;
+        filled[0] = common & 0xffffffffL;
+        empty[0] = ~union & all & 0xffffffffL;
+        return true;
+    }
+
+    /**
+     * Counts the tables built
+     *
+     * @return number of clues with a table
+     */
+    public int getTables() {
+        return tables.size();
+    }
+
+    /**
+     * Measures the memory held by the placements of every table
+     *
+     * @return bytes, at most 4 * {@value #CAPACITY}
+     */
+    public long getBytes() {
+        return 4 * size.get();
+    }
+
+    /**
+     * Lists every placement of the blocks, leftmost first
+     */
+    private static int[] build(int[] blocks, int length) {
+        int k = blocks.length, min = -1;
+        for (int b : blocks) {
+            min += b + 1;
+        }
+        if (k == 0) return new int[]{0};
+        // C(slack + k, k) placements
+        long count = 1;
+        int slack = length - min;
+        for (int i = 1; i <= k; i++) {
+            count = count * (slack + i) / i;
+        }
+        int[] out = new int[(int) count];
+        place(blocks, 0, 0, 0, length, out, new int[]{0});
+        return out;
+    }
+
+    private static void place(int[] blocks, int j, int start, int bits, int length, int[] out, int[] n) {
+        if (j == blocks.length) {
+            out[n[0]++] = bits;
+            return;
+        }
+        int rest = -1;
+        for (int b = j; b < blocks.length; b++) {
+            rest += blocks[b] + 1;
+        }
+        int block = (1 << blocks[j]) - 1;
+        for (int s = start; s + rest <= length; s++) {
+            place(blocks, j + 1, s + blocks[j] + 1, bits | (block << s), length, out, n);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide totals of the {@link NonogramStats} of every solve that records statistics, exposed over JMX.
+ * <p>
+ * The bean is registered with the platform MBean server the first time a solve reports to it. If registration fails,
+ * for instance because another class loader already registered it, the totals are still kept and readable through
+ * {@link #getInstance()}.
+ */
+public class NonogramMetrics implements NonogramMetricsMXBean {
+    public static final String OBJECT_NAME = "nonogram:type=Solver";
+
+    private final NonogramStats totals = new NonogramStats();
+    private final LongAdder solves = new LongAdder();
+
+    private NonogramMetrics() {
+    }
+
+    /**
+     * Returns the process-wide metrics, registering them over JMX on first use
+     *
+     * @return metrics
+     */
+    public static NonogramMetrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Adds the statistics of a finished solve
+     *
+     * @param s statistics
+     */
+    void add(NonogramStats s) {
+        solves.increment();
+        totals.add(s);
+    }
+
+    @Override
+    public long getSolves() {
+        return solves.sum();
+    }
+
+    @Override
+    public long getLineSolves() {
+        return totals.getLineSolves();
+    }
+
+    @Override
+    public long getTableSolves() {
+        return totals.getTableSolves();
+    }
+
+    @Override
+    public long getLineTables() {
+        return NonogramLineTable.getInstance().getTables();
+    }
+
+    @Override
+    public long getLineTableBytes() {
+        return NonogramLineTable.getInstance().getBytes();
+    }
+
+    @Override
+    public long getCandidatesGenerated() {
+        return totals.getCandidatesGenerated();
+    }
+
+    @Override
+    public long getCandidatesRejected() {
+        return totals.getCandidatesRejected();
+    }
+
+    @Override
+    public long getCellsDecided() {
+        return totals.getCellsDecided();
+    }
+
+    @Override
+    public long getPasses() {
+        return totals.getPasses();
+    }
+
+    @Override
+    public long getMaxCellsPerPass() {
+        return totals.getMaxCellsPerPass();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return totals.getCacheHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return totals.getCacheMisses();
+    }
+
+    @Override
+    public long getSearchNodes() {
+        return totals.getSearchNodes();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return totals.getTotalNanos() / 1e6;
+    }
+
+    @Override
+    public double getPropagationMillis() {
+        return totals.getPropagationNanos() / 1e6;
+    }
+
+    @Override
+    public double getSearchMillis() {
+        return totals.getSearchNanos() / 1e6;
+    }
+
+    @Override
+    public double getEnumerationMillis() {
+        return totals.getEnumerationNanos() / 1e6;
+    }
+
+    @Override
+    public double getCommonalitiesMillis() {
+        return totals.getCommonalitiesNanos() / 1e6;
+    }
+
+    @Override
+    public double getOverlapMillis() {
+        return totals.getOverlapNanos() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        solves.reset();
+        totals.reset();
+    }
+
+    /**
+     * Lazily creates and registers the instance
+     */
+    private static class Holder {
+        private static final NonogramMetrics INSTANCE = new NonogramMetrics();
+
+        static {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException e) {
+                System.err.println("Nonogram metrics not registered over JMX: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * JMX view of the statistics of every solve run with {@link NonogramSolverOptions#setStats(boolean)} on, since start
+ * or the last reset. Registered as {@value NonogramMetrics#OBJECT_NAME}.
+ *
+ * @see NonogramMetrics
+ */
+public interface NonogramMetricsMXBean {
+    long getSolves();
+
+    long getLineSolves();
+
+    long getTableSolves();
+
+    /**
+     * Counts the clues with a {@link NonogramLineTable}, shared by every solve whether or not it records statistics
+     *
+     * @return number of tables
+     */
+    long getLineTables();
+
+    /**
+     * Measures the memory held by the {@link NonogramLineTable}s, bounded by 4 * {@value NonogramLineTable#CAPACITY}
+     *
+     * @return bytes
+     */
+    long getLineTableBytes();
+
+    long getCandidatesGenerated();
+
+    long getCandidatesRejected();
+
+    long getCellsDecided();
+
+    long getPasses();
+
+    long getMaxCellsPerPass();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getSearchNodes();
+
+    double getTotalMillis();
+
+    double getPropagationMillis();
+
+    double getSearchMillis();
+
+    double getEnumerationMillis();
+
+    double getCommonalitiesMillis();
+
+    double getOverlapMillis();
+
+    /**
+     * Clears every counter and time
+     */
+    void reset();
+}
@@ -0,0 +1,30 @@
+/**
+ * Thrown when a single puzzle of a stream cannot be parsed. The reader has already skipped past the puzzle, so the
+ * next call continues with the following one.
+ */
+public class NonogramParseException extends Exception {
+    private static final long serialVersionUID = 1L;
+    private final int puzzle;
+    private final long position;
+
+    /**
+     * Instantiates the exception
+     *
+     * @param puzzle   zero-based index of the puzzle in the stream
+     * @param position line number for text formats, byte offset for binary formats
+     * @param message  description of the problem
+     */
+    public NonogramParseException(int puzzle, long position, String message) {
+        super("Puzzle " + puzzle + " at " + position + ": " + message);
+        this.puzzle = puzzle;
+        this.position = position;
+    }
+
+    public int getPuzzle() {
+        return puzzle;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+}
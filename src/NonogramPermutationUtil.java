@@ -1,102 +1,120 @@
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Lazy generator for the gap compositions of a nonogram line.
+ * <p>
+ * A composition is an array of {@code arr_length} gaps summing to {@code m_sum}, where the outer gaps are at least
+ * {@code r_min}, the interior gaps are at least {@code r_min + 1} and no gap exceeds {@code r_max}. Only valid
+ * compositions are produced, one at a time, into a single reused {@code int[]}.
+ */
 public class NonogramPermutationUtil {
-    static Map<Integer, Character> cim = new HashMap<>();
-    private int r_min = 0, r_max = 0; // minimum and maximum length of a contiguous break, maximum should typically be the same as the sum.
-    private int m_sum = 0;
-    private ArrayList<Integer[]> permutations = new ArrayList<>();
+    private final int[] permutation; // reused permutation frame, holds the current composition
+    private final int[] lower, upper; // per-entry bounds
+    private final int m_sum;
+    private boolean started = false, exhausted = false;
+
+    /**
+     * Callback consumer for generated permutations
+     */
+    @FunctionalInterface
+    public interface PermutationConsumer {
+        /**
+         * Accepts the next permutation. The array is reused between calls and must be copied to be retained.
+         *
+         * @param permutation current permutation
+         * @return true to continue generating, false to stop early
+         */
+        boolean accept(int[] permutation);
+    }
 
     /**
      * Base instantiation of utility object
      *
-     * @param r_min      minimum value of any entry in permutation
+     * @param r_min      minimum value of an outer entry in permutation, interior entries are at least one greater
      * @param r_max      maximum value of any entry in permutation
-     * @param m_sum      maximum sum of all values in permutation
+     * @param m_sum      sum of all values in permutation
      * @param arr_length number of entries in permutation
      */
     public NonogramPermutationUtil(int r_min, int r_max, int m_sum, int arr_length) {
-        this.r_min = r_min;
         if (arr_length == 0) arr_length = 1; // defaulting
-        char[] perm = new char[arr_length]; // framework for permutation data
-
-        // populating cim map
-        for (int i = 0; i < 100; i++) { // populate chars to a ridiculously high extent
-            cim.put(i, (char) (i + 48));
+        this.m_sum = m_sum;
+        permutation = new int[arr_length];
+        lower = new int[arr_length];
+        upper = new int[arr_length];
+        for (int i = 0; i < arr_length; i++) {
+            lower[i] = (i == 0 || i == arr_length - 1) ? r_min : r_min + 1;
+            upper[i] = r_max;
         }
-        String str = "";
-        for (int i = r_min; i <= r_max; i++) { // 0 is the minimum, 15 is the maximum sequence
-            str += cim.get(i);
-        }
-        permutation(perm, 0, str, m_sum);
     }
 
-//    public static void main(String[] args) { // Test code
-//        NonogramPermutationUtil l_util = new NonogramPermutationUtil(0, 15, 15, 4);
-//        var x = l_util.getPermutations();
-//        for (var j: x) {
-//            for (var k: j) {
-//                System.out.print(k + " ");
-//            }
-//            System.out.println();
-//        }
-//    }
-
     /**
-     * Calculates all permutations
+     * Advances to the next permutation
      *
-     * @param perm  permutation frame array
-     * @param pos   position on array for iteration
-     * @param str   string of all possible permutation entry characters
-     * @param M_sum maximum sum (verification measure)
+     * @return true if a new permutation is available through {@link #current()}
      */
-    private void permutation(char[] perm, int pos, String str, int M_sum) {
-        if (pos == perm.length) {
-            if (getSum(perm) == M_sum) {
-                boolean pass = true;
-                for (int i = 1; i < perm.length - 1; i++) { // ensures no zeroes in the middle
-                    if (perm[i] == 48 + r_min) {
-                        pass = false;
-                        break;
-                    }
-                }
-                if (pass) {
-                    Integer[] numericalPermutation = new Integer[perm.length];
-                    for (int i = 0; i < perm.length; i++) {
-                        numericalPermutation[i] = (int) (perm[i] - 48);
-                    }
-                    permutations.add(numericalPermutation);
-                }
+    public boolean next() {
+        if (exhausted) return false;
+        if (!started) {
+            started = true;
+            if (!fill(0, m_sum)) {
+                exhausted = true;
+                return false;
             }
-        } else {
-            for (int i = 0; i < str.length(); i++) {
-                perm[pos] = str.charAt(i);
-                permutation(perm, pos + 1, str, M_sum);
+            return true;
+        }
+        // Take one unit from the rightmost movable entry and refill everything after it from the left
+        int suffix = 0;
+        for (int i = permutation.length - 1; i >= 0; i--) {
+            if (i < permutation.length - 1 && permutation[i] > lower[i] && fill(i + 1, suffix + 1)) {
+                permutation[i]--;
+                return true;
             }
+            suffix += permutation[i];
         }
+        exhausted = true;
+        return false;
+    }
+
+    /**
+     * Returns the current permutation. The array is reused by {@link #next()}.
+     *
+     * @return current permutation
+     */
+    public int[] current() {
+        return permutation;
     }
 
     /**
-     * Returns list of permutations per parameters
+     * Feeds every remaining permutation to a consumer until it asks to stop
      *
-     * @return permutations
+     * @param consumer permutation consumer
+     * @return false if the consumer stopped early, true if all permutations were consumed
      */
-    ArrayList<Integer[]> getPermutations() {
-        return permutations;
+    public boolean forEach(PermutationConsumer consumer) {
+        while (next()) {
+            if (!consumer.accept(permutation)) return false;
+        }
+        return true;
     }
 
     /**
-     * Calculates the sum of an array of chars
+     * Greedily fills the entries from pos onwards, largest entries first, so that they sum to total
      *
-     * @param perm array
-     * @return sum of array
+     * @param pos   first entry to fill
+     * @param total sum to distribute
+     * @return false if the entries cannot hold the sum within their bounds
      */
-    private int getSum(char[] perm) {
-        var s = 0;
-        for (char p : perm) {
-            s += p - 48;
+    private boolean fill(int pos, int total) {
+        int min = 0, max = 0;
+        for (int i = pos; i < permutation.length; i++) {
+            min += lower[i];
+            max += upper[i];
+        }
+        if (total < min || total > max) return false;
+        int rest = total - min;
+        for (int i = pos; i < permutation.length; i++) {
+            int add = Math.min(rest, upper[i] - lower[i]);
+            permutation[i] = lower[i] + add;
+            rest -= add;
         }
-        return s;
+        return true;
     }
 }
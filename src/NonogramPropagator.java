@@ -0,0 +1,172 @@
+/**
+ * Line logic and backtracking shared by {@link NonogramSolver} and {@link NonogramColorSolver}.
+ * <p>
+ * A subclass keeps the squares and solves single lines; this class schedules dirty lines through a
+ * {@link NonogramWorkQueue}, rows {@code 0..height-1} then columns {@code height..height+width-1}, undoes changes
+ * through a {@link NonogramTrail}, and branches on the values of a square for a depth-first search.
+ */
+abstract class NonogramPropagator {
+    final int width, height;
+    final NonogramWorkQueue queue; // dirty lines
+    final NonogramControl control; // stop conditions and progress of the solve, shared by every copy
+    NonogramSolver.STATE state;
+    NonogramTrail trail; // change log of a search or session, null until needed
+
+    /**
+     * Instantiates a propagator with no line queued
+     *
+     * @param width   number of columns
+     * @param height  number of rows
+     * @param control stop conditions and progress
+     * @param state   initial state
+     */
+    NonogramPropagator(int width, int height, NonogramControl control, NonogramSolver.STATE state) {
+        this.width = width;
+        this.height = height;
+        this.control = control;
+        this.state = state;
+        queue = new NonogramWorkQueue(height + width);
+    }
+
+    /**
+     * Solves a line against the current squares, changes the squares it narrows, logging them if there is a log, and
+     * queues their crossing lines
+     *
+     * @param line row index, or height + column index
+     * @return false on contradiction
+     */
+    abstract boolean solveLine(int line);
+
+    /**
+     * @return number of decided squares
+     */
+    abstract int getDecided();
+
+    /**
+     * Undoes one logged change of a square
+     *
+     * @param cell  square index
+     * @param value logged value
+     */
+    abstract void revert(int cell, long value);
+
+    /**
+     * @param cell undecided square index
+     * @return values the square can still take, as a bitmask
+     */
+    abstract long getValues(int cell);
+
+    /**
+     * Decides a square, then propagates
+     *
+     * @param cell  square index
+     * @param value one of {@link #getValues(int)}
+     */
+    abstract void choose(int cell, int value);
+
+    /**
+     * Drains the work queue, solving each dirty line, until no line is left. The state afterwards is SOLVED,
+     * IMPOSSIBLE, or UNSOLVED when line logic alone is stuck or the solve was stopped. A stopped propagation leaves the
+     * squares decided so far, and the lines still queued, in place
+     */
+    void propagate() {
+        while (!queue.isEmpty()) {
+            if (control.stopped()) {
+                state = NonogramSolver.STATE.UNSOLVED;
+                return;
+            }
+            control.progress(getDecided(), width * height);
+            if (!solveLine(queue.poll())) {
+                state = NonogramSolver.STATE.IMPOSSIBLE;
+                queue.clear();
+                return;
+            }
+        }
+        state = (getDecided() == width * height) ? NonogramSolver.STATE.SOLVED : NonogramSolver.STATE.UNSOLVED;
+    }
+
+    /**
+     * Marks the current position of the change log, starting the log if there is none yet. Unlike a copy, a mark
+     * costs nothing, so a deep search needs memory for one log rather than one grid per level
+     *
+     * @return mark to {@link #undo(int)} to
+     */
+    int mark() {
+        if (trail == null) trail = new NonogramTrail(width * height);
+        return trail.size;
+    }
+
+    /**
+     * Returns to an unsolved mark by undoing every change logged since, newest first
+     *
+     * @param mark position of the change log
+     */
+    void undo(int mark) {
+        while (trail.size > mark) {
+            trail.size--;
+            revert(trail.cells[trail.size], trail.values[trail.size]);
+        }
+        queue.clear();
+        state = NonogramSolver.STATE.UNSOLVED;
+    }
+
+    /**
+     * Searches below each value of a square in turn, highest value first, undoing the square and everything it led to
+     * between values. The values are disjoint, so every solution is found below exactly one of them
+     *
+     * @param p      propagated puzzle
+     * @param cell   undecided square index
+     * @param search search to continue below each value
+     * @param <P>    type of the puzzle
+     * @return SOLVED if some value has led to a solution, IMPOSSIBLE if none can, or UNSOLVED if stopped before
+     *         either is known
+     */
+    static <P extends NonogramPropagator> NonogramSolver.STATE branch(P p, int cell, Search<P> search) {
+        int base = p.mark();
+        NonogramSolver.STATE result = NonogramSolver.STATE.IMPOSSIBLE;
+        for (long rest = p.getValues(cell); rest != 0; ) {
+            long bit = Long.highestOneBit(rest);
+            rest &= ~bit;
+            if (!search.tick()) return (result == NonogramSolver.STATE.SOLVED) ? result : NonogramSolver.STATE.UNSOLVED;
+            p.choose(cell, Long.numberOfTrailingZeros(bit));
+            NonogramSolver.STATE s = search.branch(p);
+            if (s == NonogramSolver.STATE.UNSOLVED) {
+                return (result == NonogramSolver.STATE.SOLVED) ? result : NonogramSolver.STATE.UNSOLVED;
+            }
+            if (s == NonogramSolver.STATE.SOLVED) {
+                result = NonogramSolver.STATE.SOLVED;
+                if (search.stopped()) return result;
+            }
+            p.undo(base);
+        }
+        return result;
+    }
+
+    /**
+     * Depth-first search driven by {@link #branch(NonogramPropagator, int, Search)}
+     *
+     * @param <P> type of the puzzle
+     */
+    interface Search<P extends NonogramPropagator> {
+        /**
+         * Searches below the current, propagated state of a puzzle. The puzzle is left in an arbitrary state
+         *
+         * @param p puzzle
+         * @return SOLVED if some branch has found a solution, IMPOSSIBLE if no branch can, or UNSOLVED if stopped
+         *         before either is known
+         */
+        NonogramSolver.STATE branch(P p);
+
+        /**
+         * Counts a node against the budgets
+         *
+         * @return false once the search is to stop
+         */
+        boolean tick();
+
+        /**
+         * @return true once the search is to stop
+         */
+        boolean stopped();
+    }
+}
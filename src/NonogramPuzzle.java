@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable nonogram puzzle: dimensions plus row and column clues.
+ * <p>
+ * Clues are copied on construction, so a puzzle can be shared freely between threads and solves.
+ */
+public class NonogramPuzzle {
+    private final int width, height;
+    private final List<List<Integer>> row_params, column_params;
+
+    /**
+     * Instantiates a puzzle
+     *
+     * @param width         number of columns
+     * @param height        number of rows
+     * @param row_params    row segments, one list per row
+     * @param column_params column segments, one list per column
+     * @throws IllegalArgumentException if the number of clue lists does not match the dimensions
+     */
+    public NonogramPuzzle(int width, int height, List<? extends List<Integer>> row_params, List<? extends List<Integer>> column_params) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Dimensions must be positive: " + width + "x" + height);
+        }
+        if (row_params.size() != height || column_params.size() != width) {
+            throw new IllegalArgumentException("Expected " + height + " row and " + width + " column clues, got " + row_params.size() + " and " + column_params.size());
+        }
+        this.width = width;
+        this.height = height;
+        this.row_params = freeze(row_params);
+        this.column_params = freeze(column_params);
+    }
+
+    /**
+     * Instantiates a puzzle from the dimensions list used by {@link Main}
+     *
+     * @param dims          dimensions: width, height
+     * @param row_params    row segments, one list per row
+     * @param column_params column segments, one list per column
+     */
+    public NonogramPuzzle(List<Integer> dims, List<? extends List<Integer>> row_params, List<? extends List<Integer>> column_params) {
+        this(dims.get(0), dims.get(1), row_params, column_params);
+    }
+
+    /**
+     * Derives the puzzle of a picture
+     *
+     * @param matrix picture: 1 denotes filled, anything else unfilled; rows of equal length
+     * @return puzzle whose clues are the runs of filled squares, an empty list for an empty line
+     */
+    public static NonogramPuzzle of(int[][] matrix) {
+        int height = matrix.length, width = matrix[0].length;
+        List<List<Integer>> rows = new ArrayList<>(height), columns = new ArrayList<>(width);
+        for (int i = 0; i < height; i++) {
+            rows.add(runs(matrix, i, true));
+        }
+        for (int j = 0; j < width; j++) {
+            columns.add(runs(matrix, j, false));
+        }
+        return new NonogramPuzzle(width, height, rows, columns);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public List<List<Integer>> getRowParams() {
+        return row_params;
+    }
+
+    public List<List<Integer>> getColumnParams() {
+        return column_params;
+    }
+
+    /**
+     * Returns mutable copies of the row clues, in the form the {@link NonogramSolver} constructor takes
+     *
+     * @return row segments
+     */
+    public ArrayList<ArrayList<Integer>> copyRowParams() {
+        return thaw(row_params);
+    }
+
+    /**
+     * Returns mutable copies of the column clues, in the form the {@link NonogramSolver} constructor takes
+     *
+     * @return column segments
+     */
+    public ArrayList<ArrayList<Integer>> copyColumnParams() {
+        return thaw(column_params);
+    }
+
+    /**
+     * Lists the runs of filled squares of one row or column
+     */
+    private static List<Integer> runs(int[][] matrix, int line, boolean row) {
+        int n = row ? matrix[0].length : matrix.length, run = 0;
+        List<Integer> clues = new ArrayList<>();
+        for (int k = 0; k <= n; k++) {
+            if (k < n && (row ? matrix[line][k] : matrix[k][line]) == 1) {
+                run++;
+            } else if (run > 0) {
+                clues.add(run);
+                run = 0;
+            }
+        }
+        return clues;
+    }
+
+    private static List<List<Integer>> freeze(List<? extends List<Integer>> params) {
+        List<List<Integer>> frozen = new ArrayList<>(params.size());
+        for (List<Integer> p : params) {
+            frozen.add(List.copyOf(p));
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
+    private static ArrayList<ArrayList<Integer>> thaw(List<List<Integer>> params) {
+        ArrayList<ArrayList<Integer>> copy = new ArrayList<>(params.size());
+        for (List<Integer> p : params) {
+            copy.add(new ArrayList<>(p));
+        }
+        return copy;
+    }
+}
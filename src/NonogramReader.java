@@ -0,0 +1,84 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming puzzle reader. Puzzles are parsed one at a time, so files of any size can be read in constant memory.
+ */
+public abstract class NonogramReader implements Closeable {
+    protected int index = 0; // index of the next puzzle in the stream
+
+    /**
+     * Reads the next puzzle
+     *
+     * @return puzzle, or null at the end of the stream
+     * @throws NonogramParseException if the next puzzle is malformed. The puzzle is skipped, so reading can continue
+     * @throws IOException            if the stream cannot be read
+     */
+    public abstract NonogramPuzzle read() throws IOException, NonogramParseException;
+
+    /**
+     * Returns the index the next puzzle will have
+     *
+     * @return zero-based puzzle index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Opens a puzzle file, picking the format from its extension
+     *
+     * @param path file
+     * @return reader
+     * @throws IOException if the file cannot be opened
+     * @see NonogramFormat#fromPath(Path)
+     */
+    public static NonogramReader open(Path path) throws IOException {
+        NonogramFormat format = NonogramFormat.fromPath(path);
+        if (format == NonogramFormat.BINARY) return new NonogramBinaryReader(path);
+        return new NonogramTextReader(path, format);
+    }
+
+    /**
+     * Checks the clues of a line
+     *
+     * @param clues  segment lengths
+     * @param length line length
+     * @return null if the clues fit, otherwise a description of the problem
+     */
+    protected static String checkClues(List<Integer> clues, int length) {
+        int need = -1;
+        for (int c : clues) {
+            if (c < 1) return "Clue " + c + " is not positive";
+            need += c + 1;
+        }
+        if (need > length) return "Clues " + clues + " do not fit in " + length + " squares";
+        return null;
+    }
+
+    /**
+     * Builds a puzzle, checking that every line's clues fit
+     *
+     * @param width         number of columns
+     * @param height        number of rows
+     * @param row_params    row segments
+     * @param column_params column segments
+     * @return null if the puzzle is valid, otherwise a description of the problem
+     */
+    protected static String checkPuzzle(int width, int height, List<List<Integer>> row_params, List<List<Integer>> column_params) {
+        if (width < 1 || height < 1) return "Dimensions must be positive: " + width + "x" + height;
+        List<String> problems = new ArrayList<>();
+        for (int i = 0; i < row_params.size(); i++) {
+            String p = checkClues(row_params.get(i), width);
+            if (p != null) problems.add("row " + (i + 1) + ": " + p);
+        }
+        for (int i = 0; i < column_params.size(); i++) {
+            String p = checkClues(column_params.get(i), height);
+            if (p != null) problems.add("column " + (i + 1) + ": " + p);
+        }
+        return problems.isEmpty() ? null : String.join("; ", problems);
+    }
+}
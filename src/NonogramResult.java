@@ -0,0 +1,133 @@
+import java.util.List;
+
+/**
+ * Outcome of a single solve.
+ */
+public class NonogramResult {
+    private final NonogramSolver.STATE state;
+    private final int[][] matrix; // Matrix: 1 denotes filled, 0 denotes unfilled, -1 denotes undecided
+    private final NonogramStats stats; // null if statistics were off
+    private final List<int[][]> solutions; // distinct solutions found, the first one is the matrix
+    private final boolean exhaustive; // every solution was found
+    private final NonogramSolver.REASON reason; // why the solve stopped
+
+    /**
+     * Instantiates a result without statistics
+     *
+     * @param state  final solver state
+     * @param matrix final matrix, undecided squares are -1
+     */
+    public NonogramResult(NonogramSolver.STATE state, int[][] matrix) {
+        this(state, matrix, null);
+    }
+
+    /**
+     * Instantiates a result
+     *
+     * @param state  final solver state
+     * @param matrix final matrix, undecided squares are -1
+     * @param stats  statistics of the solve, may be null
+     */
+    public NonogramResult(NonogramSolver.STATE state, int[][] matrix, NonogramStats stats) {
+        this(state, matrix, stats, (state == NonogramSolver.STATE.SOLVED) ? List.<int[][]>of(matrix) : List.<int[][]>of(), false);
+    }
+
+    /**
+     * Instantiates a result of a solve that may have looked for several solutions
+     *
+     * @param state      final solver state
+     * @param matrix     final matrix, undecided squares are -1
+     * @param stats      statistics of the solve, may be null
+     * @param solutions  distinct solutions found
+     * @param exhaustive true if the search space was exhausted, so no other solution exists
+     */
+    public NonogramResult(NonogramSolver.STATE state, int[][] matrix, NonogramStats stats, List<int[][]> solutions, boolean exhaustive) {
+        this(state, matrix, stats, solutions, exhaustive, NonogramSolver.REASON.COMPLETE);
+    }
+
+    /**
+     * Instantiates a result of a solve that may have been stopped early
+     *
+     * @param state      final solver state
+     * @param matrix     final matrix, undecided squares are -1
+     * @param stats      statistics of the solve, may be null
+     * @param solutions  distinct solutions found
+     * @param exhaustive true if the search space was exhausted, so no other solution exists
+     * @param reason     why the solve stopped
+     */
+    public NonogramResult(NonogramSolver.STATE state, int[][] matrix, NonogramStats stats, List<int[][]> solutions, boolean exhaustive, NonogramSolver.REASON reason) {
+        this.state = state;
+        this.matrix = matrix;
+        this.stats = stats;
+        this.solutions = List.copyOf(solutions);
+        this.exhaustive = exhaustive;
+        this.reason = reason;
+    }
+
+    public NonogramSolver.STATE getState() {
+        return state;
+    }
+
+    /**
+     * Returns the final matrix. The array is owned by the result and is not copied
+     *
+     * @return matrix: 1 denotes filled, 0 denotes unfilled, -1 denotes undecided
+     */
+    public int[][] getMatrix() {
+        return matrix;
+    }
+
+    public boolean isSolved() {
+        return state == NonogramSolver.STATE.SOLVED;
+    }
+
+    /**
+     * Returns the statistics of the solve
+     *
+     * @return statistics, or null unless {@link NonogramSolverOptions#setStats(boolean)} was on
+     */
+    public NonogramStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the distinct solutions found, at most {@link NonogramSolverOptions#getSolutionLimit()}. The arrays are
+     * owned by the result and are not copied
+     *
+     * @return solutions, in the order they were found
+     */
+    public List<int[][]> getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Tells whether {@link #getSolutions()} is every solution of the puzzle. This is the case when line logic alone
+     * decided the puzzle, or when the search ran to completion without reaching the solution limit or a budget
+     *
+     * @return true if the solution count is exact
+     */
+    public boolean isExhaustive() {
+        return exhaustive;
+    }
+
+    /**
+     * Tells whether the puzzle is known to have exactly one solution. Needs a solution limit of at least 2 unless
+     * line logic alone solves the puzzle
+     *
+     * @return true if exactly one solution exists
+     */
+    public boolean isUnique() {
+        return exhaustive && solutions.size() == 1;
+    }
+
+    /**
+     * Tells why the solve stopped. Unless it is {@link NonogramSolver.REASON#COMPLETE}, the state is UNSOLVED or, with
+     * a solution limit above 1, SOLVED with fewer solutions than asked for, and the matrix holds what was decided when
+     * the solve stopped
+     *
+     * @return stop reason
+     */
+    public NonogramSolver.REASON getStopReason() {
+        return reason;
+    }
+}
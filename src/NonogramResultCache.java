@@ -0,0 +1,344 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of whole-puzzle results, keyed by {@link NonogramFingerprint}.
+ * <p>
+ * Results are stored in the canonical orientation, so a mirrored or transposed copy of a solved puzzle is answered
+ * from the cache, its solutions mapped back to the caller's orientation. Only definite results are kept: IMPOSSIBLE
+ * puzzles and SOLVED ones with the solutions found. A SOLVED entry answers a solve whose solution limit it covers,
+ * i.e. it is exhaustive or holds at least as many solutions as asked for. Once full, the least recently used entry is
+ * evicted.
+ * <p>
+ * A cache opened on a file also appends every entry to it through a memory mapping, and loads the file back when
+ * opened again, so results survive restarts. The file is a header (magic "NONR", a version byte, padding and the
+ * length in use) followed by records: varint key length, the fingerprint key, state byte, exhaustive byte, varint
+ * width and height, varint solution count, then each solution as a row-major bitmap. The file is compacted to the
+ * live entries when it holds more than twice the capacity.
+ */
+public class NonogramResultCache implements Closeable {
+    private static final byte[] MAGIC = {'N', 'O', 'N', 'R'};
+    private static final int VERSION = 1;
+    private static final int HEADER = 16; // magic, version, padding, then the length in use as a long at offset 8
+    private static final int INITIAL_MAP = 1 << 20; // bytes mapped for a new file
+
+    private final int capacity;
+    private final Map<NonogramFingerprint, Cached> entries;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private final Path file; // null if not persisted
+    private FileChannel channel;
+    private MappedByteBuffer log; // mapped file, null if not persisted
+    private int records = 0; // records in the file, live or not
+
+    /**
+     * Instantiates an in-memory cache
+     *
+     * @param capacity maximum number of entries
+     */
+    public NonogramResultCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.file = null;
+        entries = newEntries();
+    }
+
+    /**
+     * Opens a cache persisted to a file, creating the file if needed and loading the entries it holds
+     *
+     * @param capacity maximum number of entries
+     * @param file     cache file
+     * @throws IOException if the file cannot be opened or is not a result cache
+     */
+    public NonogramResultCache(int capacity, Path file) throws IOException {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.file = file;
+        entries = newEntries();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size > 0) { // check the header before the mapping can grow someone else's file
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                while (header.hasRemaining() && channel.read(header, header.position()) > 0) ;
+                header.flip();
+                for (byte b : MAGIC) {
+                    if (!header.hasRemaining() || header.get() != b) throw new IOException("Not a result cache file: " + file);
+                }
+                int version = header.hasRemaining() ? header.get() & 0xFF : -1;
+                if (version != VERSION || size < HEADER) throw new IOException("Unsupported result cache version " + version + ": " + file);
+            }
+            log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_MAP));
+            if (size == 0) {
+                log.put(MAGIC).put((byte) VERSION);
+                log.putLong(8, HEADER);
+            } else {
+                load();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up a puzzle
+     *
+     * @param fingerprint   fingerprint of the puzzle
+     * @param solutionLimit solution limit of the solve
+     * @return result in the puzzle's orientation, without statistics, or null if no entry covers the solve
+     */
+    public NonogramResult get(NonogramFingerprint fingerprint, int solutionLimit) {
+        Cached e;
+        synchronized (this) {
+            e = entries.get(fingerprint);
+        }
+        if (e == null || (e.state == NonogramSolver.STATE.SOLVED && !e.exhaustive && e.solutions.size() < solutionLimit)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (e.state == NonogramSolver.STATE.IMPOSSIBLE) {
+            int[][] m = new int[e.height][e.width];
+            for (int[] row : m) {
+                Arrays.fill(row, -1);
+            }
+            return new NonogramResult(e.state, fingerprint.fromCanonical(m), null, List.of(), true);
+        }
+        int n = Math.min(solutionLimit, e.solutions.size());
+        List<int[][]> solutions = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            solutions.add(fingerprint.fromCanonical(e.matrix(k)));
+        }
+        return new NonogramResult(e.state, solutions.get(0), null, solutions, e.exhaustive && e.solutions.size() <= solutionLimit);
+    }
+
+    /**
+     * Stores the result of a puzzle if it is definite and tells more than the entry already held
+     *
+     * @param fingerprint fingerprint of the puzzle
+     * @param result      result in the puzzle's orientation
+     */
+    public void put(NonogramFingerprint fingerprint, NonogramResult result) {
+        NonogramSolver.STATE state = result.getState();
+        if (state == NonogramSolver.STATE.UNSOLVED || (state == NonogramSolver.STATE.SOLVED && result.getSolutions().isEmpty())) return;
+        int[][] m = fingerprint.toCanonical(result.getMatrix());
+        Cached e = new Cached(state, result.isExhaustive(), m[0].length, m.length);
+        for (int[][] s : result.getSolutions()) {
+            e.solutions.add(Cached.pack(fingerprint.toCanonical(s)));
+        }
+        synchronized (this) {
+            Cached old = entries.get(fingerprint);
+            if (old != null && (old.exhaustive || old.solutions.size() >= e.solutions.size()) && !e.exhaustive) return;
+            entries.put(fingerprint, e);
+            if (log != null) {
+                try {
+                    append(fingerprint.getKey(), e);
+                } catch (IOException x) {
+                    close(); // keep serving from memory
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Flushes and closes the cache file. The in-memory entries stay usable
+     */
+    @Override
+    public synchronized void close() {
+        if (log == null) return;
+        log.force();
+        log = null;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // the mapping was forced, nothing is lost
+        }
+    }
+
+    /**
+     * Instantiates the entry map, evicting the least recently used entry beyond the capacity
+     */
+    private Map<NonogramFingerprint, Cached> newEntries() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<NonogramFingerprint, Cached> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Loads the records of the file, oldest first, stopping at the first damaged one
+     */
+    private void load() throws IOException {
+        long used = log.getLong(8);
+        if (used < HEADER || used > log.capacity()) used = HEADER;
+        ByteBuffer b = log.duplicate().position(HEADER).limit((int) used);
+        while (b.hasRemaining()) {
+            int start = b.position();
+            try {
+                long length = NonogramBinaryReader.readVarint(b, b.remaining());
+                if (length > b.remaining()) throw new IllegalStateException("Key runs past the end");
+                byte[] key = new byte[(int) length];
+                b.get(key);
+                NonogramSolver.STATE state = NonogramSolver.STATE.values()[b.get()];
+                boolean exhaustive = b.get() != 0;
+                int width = (int) NonogramBinaryReader.readVarint(b, b.remaining());
+                int height = (int) NonogramBinaryReader.readVarint(b, b.remaining());
+                long count = NonogramBinaryReader.readVarint(b, b.remaining());
+                long words = ((long) width * height + 63) >>> 6;
+                if (width < 1 || height < 1 || count * words * 8 > b.remaining()) throw new IllegalStateException("Solutions run past the end");
+                Cached e = new Cached(state, exhaustive, width, height);
+                for (int k = 0; k < count; k++) {
+                    long[] bits = new long[(int) words];
+                    for (int w = 0; w < bits.length; w++) {
+                        bits[w] = b.getLong();
+                    }
+                    e.solutions.add(bits);
+                }
+                entries.put(NonogramFingerprint.ofKey(key), e);
+                records++;
+            } catch (IllegalStateException | BufferUnderflowException | IndexOutOfBoundsException x) {
+                used = start; // drop the damaged tail
+                break;
+            }
+        }
+        log.putLong(8, used);
+        if (records > 2 * capacity) compact();
+    }
+
+    /**
+     * Appends a record, growing the mapping as needed
+     */
+    private void append(byte[] key, Cached e) throws IOException {
+        ByteBuffer r = encode(key, e);
+        int used = (int) log.getLong(8);
+        if (used + r.remaining() > log.capacity()) {
+            log.force();
+            log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(2L * log.capacity(), used + r.remaining()));
+        }
+        int length = r.remaining();
+        log.duplicate().position(used).put(r);
+        log.putLong(8, used + length); // the record only counts once it is complete
+        if (++records > 2 * capacity) compact();
+    }
+
+    /**
+     * Rewrites the file with the live entries, replacing it atomically
+     */
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<ByteBuffer> live = new ArrayList<>(entries.size());
+        long size = HEADER;
+        for (Map.Entry<NonogramFingerprint, Cached> en : entries.entrySet()) {
+            ByteBuffer r = encode(en.getKey().getKey(), en.getValue());
+            live.add(r);
+            size += r.remaining();
+        }
+        try (FileChannel c = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer m = c.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_MAP));
+            m.put(MAGIC).put((byte) VERSION).position(HEADER);
+            for (ByteBuffer r : live) {
+                m.put(r);
+            }
+            m.putLong(8, size);
+            m.force();
+        }
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        records = live.size();
+    }
+
+    private static ByteBuffer encode(byte[] key, Cached e) {
+        int words = (e.width * e.height + 63) >>> 6;
+        ByteBuffer r = ByteBuffer.allocate(5 + key.length + 2 + 15 + e.solutions.size() * words * 8);
+        putVarint(r, key.length);
+        r.put(key);
+        r.put((byte) e.state.ordinal());
+        r.put((byte) (e.exhaustive ? 1 : 0));
+        putVarint(r, e.width);
+        putVarint(r, e.height);
+        putVarint(r, e.solutions.size());
+        for (long[] bits : e.solutions) {
+            for (long w : bits) {
+                r.putLong(w);
+            }
+        }
+        return r.flip();
+    }
+
+    private static void putVarint(ByteBuffer b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    /**
+     * A cached result in the canonical orientation
+     */
+    private static class Cached {
+        private final NonogramSolver.STATE state;
+        private final boolean exhaustive;
+        private final int width, height;
+        private final List<long[]> solutions = new ArrayList<>(); // row-major filled bitmaps
+
+        Cached(NonogramSolver.STATE state, boolean exhaustive, int width, int height) {
+            this.state = state;
+            this.exhaustive = exhaustive;
+            this.width = width;
+            this.height = height;
+        }
+
+        static long[] pack(int[][] m) {
+            int w = m[0].length;
+            long[] bits = new long[(m.length * w + 63) >>> 6];
+            for (int i = 0; i < m.length; i++) {
+                for (int j = 0; j < w; j++) {
+                    if (m[i][j] == 1) NonogramGrid.setBit(bits, 0, i * w + j);
+                }
+            }
+            return bits;
+        }
+
+        int[][] matrix(int k) {
+            long[] bits = solutions.get(k);
+            int[][] m = new int[height][width];
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    m[i][j] = NonogramGrid.getBit(bits, 0, i * width + j) ? 1 : 0;
+                }
+            }
+            return m;
+        }
+    }
+}
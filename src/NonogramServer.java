@@ -0,0 +1,460 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Embedded HTTP solve server, so that callers can keep one warm solver instead of starting a JVM per puzzle.
+ * <p>
+ * The server binds to the loopback interface only and uses nothing beyond the JDK, so it runs entirely offline.
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /solve} with {@code Content-Type: application/json}: a single puzzle
+ *     {@code {"width": w, "height": h, "rows": [[...], ...], "columns": [[...], ...]}}, optionally with
+ *     {@code "engine"}, {@code "solutions"} (solution limit) and {@code "timeout"} (milliseconds). The response holds
+ *     the state, the stop reason, the final matrix and the solutions as strings of '1', '0' and '?', and the solver
+ *     statistics.</li>
+ *     <li>{@code POST /solve?format=binary|non|cwd} with any other content type: a puzzle stream in that format. The
+ *     response is the matching solution stream of {@link NonogramSolutionWriter}, binary for binary requests and text
+ *     otherwise, in puzzle order. Puzzles that cannot be parsed or time out are written as errors.</li>
+ *     <li>{@code GET /health}: queue and admission figures.</li>
+ * </ul>
+ * <p>
+ * Requests are handled on virtual threads when the runtime has them. At most {@code capacity} requests are admitted at
+ * once; beyond that the server answers 503 with {@code Retry-After} instead of queueing without bound. Puzzles are
+ * solved by a fixed set of worker threads taking jobs from a bounded queue, so a burst of requests cannot oversubscribe
+ * the cores. Small puzzles are taken in batches, one hand-off per batch. Every request has a deadline: most of the
+ * remaining time becomes the time limit of its puzzles, puzzles still queued at the deadline are dropped, and a request
+ * that misses it is answered 504 and its puzzles still being solved are cancelled, so the worker moves on.
+ */
+public class NonogramServer implements AutoCloseable {
+    private static final int SMALL = 32 * 32; // squares of a puzzle that is batched with its neighbours
+    private static final int BATCH = 16; // most small puzzles a worker takes at once
+    private static final int MAX_BODY = 64 << 20; // largest request body in bytes
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final Thread[] workers;
+    private final BlockingQueue<Job> jobs;
+    private final Semaphore admission; // one per request in flight
+    private final int capacity;
+    private final long timeout; // default request deadline in milliseconds
+    private final NonogramSolverOptions options;
+
+    /**
+     * Instantiates a server on a loopback port. It does not accept requests until {@link #start()}
+     *
+     * @param port     TCP port, 0 for any free port
+     * @param workers  number of solver threads
+     * @param capacity most requests admitted at once, and most puzzles queued for the workers
+     * @param timeout  default request deadline in milliseconds
+     * @param options  solver options every request starts from; requests only override the engine and the solution
+     *                 limit. Statistics are always recorded
+     * @throws IOException if the port cannot be bound
+     */
+    public NonogramServer(int port, int workers, int capacity, long timeout, NonogramSolverOptions options) throws IOException {
+        if (workers < 1) throw new IllegalArgumentException("Workers must be positive: " + workers);
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        if (timeout < 1) throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        this.capacity = capacity;
+        this.timeout = timeout;
+        this.options = new NonogramSolverOptions(options).setStats(true);
+        jobs = new ArrayBlockingQueue<>(capacity);
+        admission = new Semaphore(capacity);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), capacity);
+        ExecutorService e = NonogramBatchSolver.newVirtualThreadExecutor();
+        handlers = (e != null) ? e : Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.createContext("/solve", this::solve);
+        server.createContext("/health", this::health);
+        this.workers = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Thread(this::work, "nonogram-worker-" + i);
+            this.workers[i].setDaemon(true);
+        }
+    }
+
+    /**
+     * Starts the workers and begins accepting requests
+     */
+    public void start() {
+        for (Thread w : workers) {
+            w.start();
+        }
+        server.start();
+    }
+
+    /**
+     * Returns the bound port, useful when the server was created on port 0
+     *
+     * @return TCP port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for the ones in flight, then stops the workers
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        handlers.shutdownNow();
+        for (Thread w : workers) {
+            w.interrupt();
+        }
+    }
+
+    private void health(HttpExchange ex) throws IOException {
+        try {
+            String body = "{\"status\":\"ok\",\"queued\":" + jobs.size() + ",\"admitted\":" + (capacity - admission.availablePermits())
+                    + ",\"capacity\":" + capacity + ",\"workers\":" + workers.length + "}";
+            send(ex, 200, "application/json", body.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void solve(HttpExchange ex) throws IOException {
+        try {
+            if (!"POST".equals(ex.getRequestMethod())) {
+                sendError(ex, 405, "Use POST");
+                return;
+            }
+            if (!admission.tryAcquire()) {
+                ex.getResponseHeaders().set("Retry-After", "1");
+                sendError(ex, 503, "Server busy");
+                return;
+            }
+            try {
+                Map<String, String> query = query(ex);
+                long ms = query.containsKey("timeout") ? Math.max(1, Long.parseLong(query.get("timeout"))) : timeout;
+                byte[] body = readBody(ex.getRequestBody());
+                if (body == null) {
+                    sendError(ex, 413, "Request body exceeds " + MAX_BODY + " bytes");
+                    return;
+                }
+                String type = ex.getRequestHeaders().getFirst("Content-Type");
+                if (type != null && type.toLowerCase().startsWith("application/json")) {
+                    solveJson(ex, new String(body, StandardCharsets.UTF_8), ms);
+                } else {
+                    solveStream(ex, body, query.getOrDefault("format", "binary"), ms);
+                }
+            } catch (IllegalArgumentException e) {
+                sendError(ex, 400, e.getMessage());
+            } finally {
+                admission.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ex.close();
+        }
+    }
+
+    /**
+     * Solves a single JSON puzzle
+     */
+    private void solveJson(HttpExchange ex, String body, long ms) throws IOException, InterruptedException {
+        Object parsed = NonogramJson.parse(body);
+        if (!(parsed instanceof Map)) throw new IllegalArgumentException("Expected a JSON object");
+        Map<?, ?> request = (Map<?, ?>) parsed;
+        int width = intField(request, "width"), height = intField(request, "height");
+        List<List<Integer>> rows = cluesField(request, "rows", height), columns = cluesField(request, "columns", width);
+        String problem = NonogramReader.checkPuzzle(width, height, rows, columns);
+        if (problem != null) throw new IllegalArgumentException(problem);
+        if (request.containsKey("timeout")) ms = Math.max(1, intField(request, "timeout"));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms);
+
+        NonogramSolverOptions o = new NonogramSolverOptions(options);
+        if (request.get("engine") instanceof String) o.setEngine(engine((String) request.get("engine")));
+        if (request.containsKey("solutions")) o.setSolutionLimit(intField(request, "solutions"));
+        Job job = new Job(new NonogramPuzzle(width, height, rows, columns), o, deadline);
+        if (!jobs.offer(job, remaining(deadline), TimeUnit.NANOSECONDS)) {
+            ex.getResponseHeaders().set("Retry-After", "1");
+            sendError(ex, 503, "Server busy");
+            return;
+        }
+        NonogramResult r;
+        try {
+            r = job.result.get(remaining(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            job.cancel();
+            sendError(ex, 504, "Timed out after " + ms + " ms");
+            return;
+        } catch (ExecutionException e) {
+            sendError(ex, (e.getCause() instanceof TimeoutException) ? 504 : 500, String.valueOf(e.getCause()));
+            return;
+        }
+        send(ex, 200, "application/json", toJson(r).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Solves a puzzle stream, answering with the solution stream in puzzle order
+     */
+    private void solveStream(HttpExchange ex, byte[] body, String format, long ms) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms);
+        boolean binary = format.equalsIgnoreCase("binary");
+        NonogramReader reader;
+        try {
+            reader = binary ? new NonogramBinaryReader(ByteBuffer.wrap(body))
+                    : new NonogramTextReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8), NonogramFormat.valueOf(format.toUpperCase()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        // Queue every puzzle first, waiting for room in the job queue, then collect the results in order
+        List<Object> pending = new ArrayList<>(); // a Job, or the message of a puzzle that could not be queued
+        try (reader) {
+            while (true) {
+                NonogramPuzzle p;
+                try {
+                    p = reader.read();
+                } catch (NonogramParseException e) {
+                    pending.add(e.getMessage());
+                    continue;
+                }
+                if (p == null) break;
+                Job job = new Job(p, new NonogramSolverOptions(options), deadline);
+                pending.add(jobs.offer(job, remaining(deadline), TimeUnit.NANOSECONDS) ? job : "Timed out waiting for a worker");
+            }
+        }
+        ex.getResponseHeaders().set("Content-Type", binary ? "application/octet-stream" : "text/plain; charset=utf-8");
+        ex.sendResponseHeaders(200, 0);
+        try (NonogramSolutionWriter writer = new NonogramSolutionWriter(ex.getResponseBody(), binary)) {
+            for (int i = 0; i < pending.size(); i++) {
+                Object o = pending.get(i);
+                if (o instanceof String) {
+                    writer.writeError(i, (String) o);
+                    continue;
+                }
+                Job job = (Job) o;
+                try {
+                    writer.write(i, job.result.get(remaining(deadline), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    job.cancel();
+                    writer.writeError(i, "Timed out after " + ms + " ms");
+                } catch (ExecutionException e) {
+                    writer.writeError(i, String.valueOf(e.getCause()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Worker loop: takes a job, and further small jobs while the first one is small, then solves them in order
+     */
+    private void work() {
+        List<Job> batch = new ArrayList<>(BATCH);
+        try {
+            while (true) {
+                batch.add(jobs.take());
+                while (batch.size() < BATCH && batch.get(0).isSmall()) {
+                    Job next = jobs.peek();
+                    if (next == null || !next.isSmall() || (next = jobs.poll()) == null) break;
+                    batch.add(next);
+                }
+                for (Job j : batch) {
+                    j.run();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * A puzzle waiting for a worker
+     */
+    private static class Job {
+        private final NonogramPuzzle puzzle;
+        private final NonogramSolverOptions options;
+        private final long deadline; // System.nanoTime() by which the request must be answered
+        private final CompletableFuture<NonogramResult> result = new CompletableFuture<>();
+        private final NonogramCancellationToken token = new NonogramCancellationToken();
+
+        Job(NonogramPuzzle puzzle, NonogramSolverOptions options, long deadline) {
+            this.puzzle = puzzle;
+            this.options = options;
+            this.deadline = deadline;
+        }
+
+        boolean isSmall() {
+            return puzzle.getWidth() * puzzle.getHeight() <= SMALL;
+        }
+
+        /**
+         * Solves the puzzle within the time left, unless the request gave up on it
+         */
+        void run() {
+            if (result.isDone()) return;
+            long left = remaining(deadline);
+            if (left == 0) {
+                result.completeExceptionally(new TimeoutException("Deadline passed before the puzzle was started"));
+                return;
+            }
+            // Leave a tenth of the time to stop the search and answer, so a hard puzzle yields its partial grid rather than a 504
+            options.setTimeLimit(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left) * 9 / 10)).setCancellationToken(token);
+            try {
+                result.complete(NonogramSolver.solve(puzzle, options));
+            } catch (RuntimeException | Error e) { // keep the worker alive for the next job
+                result.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Gives up on the puzzle: drops it if it is still queued, or stops its solve
+         */
+        void cancel() {
+            result.cancel(false);
+            token.cancel();
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private static String toJson(NonogramResult r) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"state\":").append(NonogramJson.quote(r.getState().name()));
+        sb.append(",\"unique\":").append(r.isUnique());
+        sb.append(",\"exhaustive\":").append(r.isExhaustive());
+        sb.append(",\"stopped\":").append(NonogramJson.quote(r.getStopReason().name()));
+        sb.append(",\"matrix\":");
+        appendMatrix(sb, r.getMatrix());
+        sb.append(",\"solutions\":[");
+        for (int k = 0; k < r.getSolutions().size(); k++) {
+            if (k > 0) sb.append(',');
+            appendMatrix(sb, r.getSolutions().get(k));
+        }
+        sb.append(']');
+        NonogramStats s = r.getStats();
+        if (s != null) {
+            sb.append(",\"stats\":{\"lineSolves\":").append(s.getLineSolves())
+                    .append(",\"cellsDecided\":").append(s.getCellsDecided())
+                    .append(",\"passes\":").append(s.getPasses())
+                    .append(",\"searchNodes\":").append(s.getSearchNodes())
+                    .append(",\"cacheHits\":").append(s.getCacheHits())
+                    .append(",\"cacheMisses\":").append(s.getCacheMisses())
+                    .append(",\"totalMillis\":").append(s.getTotalNanos() / 1e6)
+                    .append(",\"propagationMillis\":").append(s.getPropagationNanos() / 1e6)
+                    .append(",\"searchMillis\":").append(s.getSearchNanos() / 1e6)
+                    .append('}');
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Appends a matrix as an array of row strings, '1' filled, '0' unfilled, '?' undecided
+     */
+    private static void appendMatrix(StringBuilder sb, int[][] m) {
+        sb.append('[');
+        for (int i = 0; i < m.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"');
+            for (int v : m[i]) {
+                sb.append((v == 1) ? '1' : (v == 0) ? '0' : '?');
+            }
+            sb.append('"');
+        }
+        sb.append(']');
+    }
+
+    private static int intField(Map<?, ?> m, String key) {
+        Object v = m.get(key);
+        if (!(v instanceof Long) || (Long) v < 0 || (Long) v > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("\"" + key + "\" must be a non-negative integer");
+        }
+        return (int) (long) (Long) v;
+    }
+
+    private static List<List<Integer>> cluesField(Map<?, ?> m, String key, int count) {
+        Object v = m.get(key);
+        if (!(v instanceof List) || ((List<?>) v).size() != count) {
+            throw new IllegalArgumentException("\"" + key + "\" must be an array of " + count + " clue arrays");
+        }
+        List<List<Integer>> lines = new ArrayList<>(count);
+        for (Object line : (List<?>) v) {
+            if (!(line instanceof List)) throw new IllegalArgumentException("\"" + key + "\" must hold clue arrays");
+            List<Integer> clues = new ArrayList<>();
+            for (Object c : (List<?>) line) {
+                if (!(c instanceof Long) || (Long) c < 0 || (Long) c > Integer.MAX_VALUE) throw new IllegalArgumentException("Invalid clue " + c);
+                if ((Long) c != 0) clues.add((int) (long) (Long) c); // a 0 clue is an empty line
+            }
+            lines.add(clues);
+        }
+        return lines;
+    }
+
+    private static NonogramSolver.ENGINE engine(String name) {
+        try {
+            return NonogramSolver.ENGINE.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> q = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return q;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                q.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return q;
+    }
+
+    /**
+     * Reads a request body
+     *
+     * @return bytes, or null if the body exceeds {@link #MAX_BODY}
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1 << 16];
+        for (int n; (n = in.read(buf)) > 0; ) {
+            if (out.size() + n > MAX_BODY) return null;
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static void sendError(HttpExchange ex, int status, String message) throws IOException {
+        send(ex, status, "application/json", ("{\"error\":" + NonogramJson.quote(String.valueOf(message)) + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange ex, int status, String type, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", type);
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,757 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solves a puzzle corpus in shards on worker processes, resuming after a crash.
+ * <p>
+ * The corpus is cut into shards of consecutive puzzle indices. Each shard is solved by one of several worker JVMs
+ * ({@code Main --worker}), which receives the puzzles and sends back results and statistics over its standard input
+ * and output. A shard's results are written to {@code shard-<n>.<ext>} in the output directory, and its number is then
+ * appended to the {@code checkpoint} file, so a restarted run skips every shard already done. Once every shard is
+ * done, the shard files are concatenated in order into {@code results.<ext>}.
+ * <p>
+ * A puzzle is quarantined, i.e. listed in {@code quarantine.log} with its index and cause, when its solve throws, for
+ * instance a {@link StackOverflowError}, when it runs out of its time limit, or when it takes its worker down. A worker
+ * that dies or gets no result out within twice the time limit plus {@value #GRACE} ms is killed and replaced, and the
+ * rest of its shard is resent; the puzzle in flight is quarantined, so a poisonous puzzle cannot stall the run. Every
+ * puzzle still has a record in the results: its partial result, or an error.
+ * <p>
+ * A shard finished just before a crash may be recorded twice in the quarantine log, never lost.
+ */
+public class NonogramShardRunner {
+    static final long GRACE = 5_000; // milliseconds added to the hard timeout of a puzzle, covering the start of a worker
+    static final int END = -1; // puzzle index closing the input of a worker
+    private static final int RESULT = 0, ERROR = 1; // record kinds sent back by a worker
+    private static final Object POISON = new Object(); // closes the shard queue
+
+    private final Path corpus, directory;
+    private final NonogramSolutionWriter.FORM form;
+    private final int workers, shard_size;
+    private final NonogramSolver.ENGINE engine;
+    private final long time_limit; // milliseconds per puzzle, 0 for none
+    private final List<Worker> live = new CopyOnWriteArrayList<>(); // watched by the watchdog
+    private final LongAdder solved = new LongAdder(), unsolved = new LongAdder(), impossible = new LongAdder(), errors = new LongAdder();
+    private final LongAdder quarantined = new LongAdder(), restarts = new LongAdder(), shards = new LongAdder();
+    private final LongAdder line_solves = new LongAdder(), search_nodes = new LongAdder(), solve_nanos = new LongAdder();
+
+    /**
+     * Instantiates a runner
+     *
+     * @param corpus     puzzle file, in any {@link NonogramFormat}
+     * @param directory  output directory, created if missing; holds the shard results, checkpoint and quarantine
+     * @param form       form of the results
+     * @param workers    number of worker processes
+     * @param shard_size puzzles per shard; a resumed run must use the size it started with
+     * @param engine     line engine of the workers
+     * @param time_limit time limit per puzzle in milliseconds, 0 for none
+     */
+    public NonogramShardRunner(Path corpus, Path directory, NonogramSolutionWriter.FORM form, int workers, int shard_size,
+                               NonogramSolver.ENGINE engine, long time_limit) {
+        if (workers < 1) throw new IllegalArgumentException("Worker count must be positive: " + workers);
+        if (shard_size < 1) throw new IllegalArgumentException("Shard size must be positive: " + shard_size);
+        if (time_limit < 0) throw new IllegalArgumentException("Time limit must not be negative: " + time_limit);
+        this.corpus = corpus;
+        this.directory = directory;
+        this.form = form;
+        this.workers = workers;
+        this.shard_size = shard_size;
+        this.engine = engine;
+        this.time_limit = time_limit;
+    }
+
+    /**
+     * Solves every shard not checkpointed yet
+     *
+     * @return counts of this run; shards skipped as already done are not included
+     * @throws IOException          if the corpus cannot be read, an output cannot be written, or a worker cannot be
+     *                              started
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public Summary run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        for (LongAdder a : List.of(solved, unsolved, impossible, errors, quarantined, restarts, shards, line_solves, search_nodes, solve_nanos)) {
+            a.reset();
+        }
+        Files.createDirectories(directory);
+        Set<Integer> done = readCheckpoint();
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(workers);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Thread watchdog = new Thread(this::watch, "shard-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        int total;
+        try {
+            List<Future<?>> tasks = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                tasks.add(pool.submit(() -> {
+                    drain(queue);
+                    return null;
+                }));
+            }
+            try {
+                total = split(done, queue, tasks);
+            } finally {
+                for (int w = 0; w < workers; w++) {
+                    while (!queue.offer(POISON, 100, TimeUnit.MILLISECONDS)) {
+                        if (tasks.stream().allMatch(Future::isDone)) break; // nobody is left to take it
+                    }
+                }
+            }
+            for (Future<?> t : tasks) {
+                try {
+                    t.get();
+                } catch (ExecutionException e) {
+                    Throwable c = e.getCause();
+                    if (c instanceof IOException) throw (IOException) c;
+                    if (c instanceof UncheckedIOException) throw ((UncheckedIOException) c).getCause();
+                    if (c instanceof RuntimeException) throw (RuntimeException) c;
+                    if (c instanceof Error) throw (Error) c;
+                    throw new IOException(c);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            watchdog.interrupt();
+            for (Worker w : live) {
+                w.kill();
+            }
+        }
+        merge(total);
+        return new Summary(this, total, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs a worker: solves the puzzles arriving on a stream and writes back their results, until the closing record
+     * or the end of the stream
+     *
+     * @param in      puzzles, from the runner
+     * @param out     results, to the runner
+     * @param options solver options; statistics are turned on
+     * @throws IOException if a stream fails
+     */
+    public static void work(InputStream in, OutputStream out, NonogramSolverOptions options) throws IOException {
+        DataInputStream din = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        NonogramSolverOptions o = new NonogramSolverOptions(options).setStats(true);
+        while (true) {
+            int index;
+            try {
+                index = din.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            if (index == END) break;
+            NonogramPuzzle p = readPuzzle(din);
+            NonogramResult r = null;
+            String failure = null;
+            try {
+                r = NonogramSolver.solve(p, o);
+            } catch (RuntimeException | Error e) { // a StackOverflowError leaves the worker usable
+                failure = String.valueOf(e);
+            }
+            dout.writeInt(index);
+            if (r != null) {
+                writeResult(dout, r);
+            } else {
+                dout.writeByte(ERROR);
+                dout.writeUTF((failure.length() > 1000) ? failure.substring(0, 1000) : failure);
+            }
+            dout.flush(); // the runner times each puzzle from the previous result
+        }
+        dout.flush();
+    }
+
+    /**
+     * Reads the corpus, skipping the shards already done and queueing the others
+     *
+     * @return number of shards of the corpus
+     */
+    private int split(Set<Integer> done, BlockingQueue<Object> queue, List<Future<?>> tasks) throws IOException, InterruptedException {
+        int n = 0;
+        try (NonogramReader reader = NonogramReader.open(corpus)) {
+            Shard shard = null;
+            while (true) {
+                int index = reader.getIndex();
+                NonogramPuzzle p = null;
+                String error = null;
+                try {
+                    p = reader.read();
+                    if (p == null) break;
+                } catch (NonogramParseException e) {
+                    error = e.getMessage();
+                    index = e.getPuzzle();
+                }
+                int s = index / shard_size;
+                if (shard == null || shard.number != s) {
+                    if (shard != null) put(queue, shard, tasks);
+                    shard = done.contains(s) ? null : new Shard(s);
+                    n = s + 1;
+                    if (shard == null) continue;
+                }
+                if (shard != null) shard.add(index, p, error);
+            }
+            if (shard != null) put(queue, shard, tasks);
+        }
+        return n;
+    }
+
+    private static void put(BlockingQueue<Object> queue, Shard shard, List<Future<?>> tasks) throws InterruptedException {
+        while (!queue.offer(shard, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<?> t : tasks) {
+                if (t.isDone()) return; // a worker thread failed; run() reports its exception
+            }
+        }
+    }
+
+    /**
+     * Solves queued shards on one worker process until the queue is closed
+     */
+    private void drain(BlockingQueue<Object> queue) throws IOException, InterruptedException {
+        Worker worker = null;
+        try {
+            for (Object o = queue.take(); o != POISON; o = queue.take()) {
+                worker = solve((Shard) o, worker);
+            }
+            if (worker != null) worker.close();
+        } finally {
+            if (worker != null) worker.kill();
+        }
+    }
+
+    /**
+     * Solves a shard, replacing the worker as often as it dies, then saves the shard
+     *
+     * @param shard  shard
+     * @param worker live worker, or null to start one
+     * @return live worker, or null
+     */
+    private Worker solve(Shard shard, Worker worker) throws IOException, InterruptedException {
+        int pos = 0;
+        while (pos < shard.size()) {
+            if (shard.puzzles.get(pos) == null) { // unparseable, nothing to send
+                pos++;
+                continue;
+            }
+            if (worker == null) worker = start();
+            Worker w = worker;
+            int from = pos;
+            Thread sender = new Thread(() -> w.send(shard, from), "shard-sender");
+            sender.setDaemon(true);
+            sender.start();
+            try {
+                for (; pos < shard.size(); pos++) {
+                    if (shard.puzzles.get(pos) == null) continue;
+                    w.arm(hardLimit());
+                    shard.record(pos, w.receive(shard.indices.get(pos)));
+                }
+                w.arm(0);
+                sender.join();
+            } catch (IOException e) {
+                String cause = w.killed ? "TIMEOUT no result within " + hardLimit() + " ms" : "CRASHED " + w.describe(e);
+                shard.quarantine(pos, cause);
+                shard.errors.set(pos, cause);
+                pos++;
+                w.kill();
+                sender.join();
+                worker = null;
+                restarts.increment();
+            }
+        }
+        save(shard);
+        return worker;
+    }
+
+    private long hardLimit() {
+        return (time_limit > 0) ? 2 * time_limit + GRACE : 0;
+    }
+
+    /**
+     * Starts a worker JVM on the class path of this one
+     */
+    private Worker start() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("Main");
+        command.add(engine.name());
+        command.add("--worker");
+        command.add(Long.toString(time_limit));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        Worker w = new Worker(process);
+        live.add(w);
+        return w;
+    }
+
+    /**
+     * Kills the workers that are past their deadline, until interrupted
+     */
+    private void watch() {
+        try {
+            while (true) {
+                Thread.sleep(50);
+                long now = System.nanoTime();
+                for (Worker w : live) {
+                    long d = w.deadline;
+                    if (d != 0 && now - d > 0) {
+                        w.killed = true;
+                        w.kill();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // run() is over
+        }
+    }
+
+    /**
+     * Writes the results of a shard under a temporary name and renames it, then records the quarantined puzzles and
+     * the checkpoint, in that order
+     */
+    private void save(Shard shard) throws IOException {
+        Path file = shardFile(shard.number), tmp = directory.resolve(file.getFileName() + ".tmp");
+        try (NonogramSolutionWriter writer = new NonogramSolutionWriter(Files.newOutputStream(tmp), form)) {
+            for (int k = 0; k < shard.size(); k++) {
+                NonogramResult r = shard.results.get(k);
+                if (r != null) writer.write(shard.indices.get(k), r);
+                else writer.writeError(shard.indices.get(k), shard.errors.get(k));
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            if (shard.quarantine.length() > 0) {
+                Files.write(directory.resolve("quarantine.log"), shard.quarantine.toString().getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            }
+            Files.write(directory.resolve("checkpoint"), ("shard " + shard.number + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        }
+        shards.increment();
+    }
+
+    /**
+     * Reads the shards already done, writing the header of a new checkpoint
+     *
+     * @return shard numbers
+     * @throws IllegalStateException if the checkpoint was written with another shard size
+     */
+    private Set<Integer> readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve("checkpoint");
+        Set<Integer> done = new HashSet<>();
+        if (!Files.exists(checkpoint)) {
+            Files.write(checkpoint, ("shard-size " + shard_size + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.SYNC);
+            return done;
+        }
+        for (String line : Files.readAllLines(checkpoint, StandardCharsets.UTF_8)) {
+            String[] f = line.trim().split(" ");
+            if (f.length != 2) continue; // a line cut short by a crash
+            if (f[0].equals("shard-size") && Integer.parseInt(f[1]) != shard_size) {
+                throw new IllegalStateException("Checkpoint " + checkpoint + " was written with shard size " + f[1] + ", not " + shard_size);
+            }
+            if (f[0].equals("shard") && Files.exists(shardFile(Integer.parseInt(f[1])))) done.add(Integer.parseInt(f[1]));
+        }
+        return done;
+    }
+
+    /**
+     * Concatenates the shard files into the results file, if every shard is done
+     */
+    private void merge(int total) throws IOException {
+        Path results = directory.resolve("results" + extension()), tmp = directory.resolve("results" + extension() + ".tmp");
+        for (int s = 0; s < total; s++) {
+            if (!Files.exists(shardFile(s))) return;
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            for (int s = 0; s < total; s++) {
+                Files.copy(shardFile(s), out);
+            }
+        }
+        Files.move(tmp, results, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path shardFile(int number) {
+        return directory.resolve(String.format("shard-%06d%s", number, extension()));
+    }
+
+    private String extension() {
+        return (form == NonogramSolutionWriter.FORM.BINARY) ? ".nonb" : (form == NonogramSolutionWriter.FORM.PBM) ? ".pbm" : ".txt";
+    }
+
+    /**
+     * Writes a puzzle for a worker: index, width, height, then the clue count and clues of every row and column
+     */
+    static void writePuzzle(DataOutputStream out, int index, NonogramPuzzle p) throws IOException {
+        out.writeInt(index);
+        out.writeInt(p.getWidth());
+        out.writeInt(p.getHeight());
+        for (List<List<Integer>> section : List.of(p.getRowParams(), p.getColumnParams())) {
+            for (List<Integer> clues : section) {
+                out.writeInt(clues.size());
+                for (int c : clues) {
+                    out.writeInt(c);
+                }
+            }
+        }
+    }
+
+    private static NonogramPuzzle readPuzzle(DataInputStream in) throws IOException {
+        int width = in.readInt(), height = in.readInt();
+        List<List<Integer>> rows = readClues(in, height), columns = readClues(in, width);
+        return new NonogramPuzzle(width, height, rows, columns);
+    }
+
+    private static List<List<Integer>> readClues(DataInputStream in, int lines) throws IOException {
+        List<List<Integer>> section = new ArrayList<>(lines);
+        for (int l = 0; l < lines; l++) {
+            int n = in.readInt();
+            List<Integer> clues = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                clues.add(in.readInt());
+            }
+            section.add(clues);
+        }
+        return section;
+    }
+
+    /**
+     * Writes a result: kind, state, stop reason, exhaustive flag, the matrix unless solved, the solutions, then the
+     * line solves, search nodes and nanoseconds of the solve
+     */
+    private static void writeResult(DataOutputStream out, NonogramResult r) throws IOException {
+        out.writeByte(RESULT);
+        out.writeByte(r.getState().ordinal());
+        out.writeByte(r.getStopReason().ordinal());
+        out.writeBoolean(r.isExhaustive());
+        if (!r.isSolved()) writeMatrix(out, r.getMatrix());
+        out.writeInt(r.getSolutions().size());
+        for (int[][] m : r.getSolutions()) {
+            writeMatrix(out, m);
+        }
+        NonogramStats s = r.getStats();
+        out.writeLong(s.getLineSolves());
+        out.writeLong(s.getSearchNodes());
+        out.writeLong(s.getTotalNanos());
+    }
+
+    /**
+     * Reads what a worker sent back for a puzzle
+     *
+     * @param in    worker output
+     * @param index expected puzzle index
+     * @param stats destination for the line solves, search nodes and nanoseconds of the solve; untouched on an error
+     * @return result, without statistics, or the message of a solve that threw
+     * @throws IOException if the stream fails or the record is for another puzzle
+     */
+    static Object readRecord(DataInputStream in, int index, long[] stats) throws IOException {
+        int got = in.readInt();
+        if (got != index) throw new IOException("Worker answered puzzle " + got + " instead of " + index);
+        if (in.readByte() == ERROR) return in.readUTF();
+        NonogramSolver.STATE state = NonogramSolver.STATE.values()[in.readByte()];
+        NonogramSolver.REASON reason = NonogramSolver.REASON.values()[in.readByte()];
+        boolean exhaustive = in.readBoolean();
+        int[][] matrix = (state != NonogramSolver.STATE.SOLVED) ? readMatrix(in) : null;
+        int n = in.readInt();
+        List<int[][]> solutions = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            solutions.add(readMatrix(in));
+        }
+        stats[0] = in.readLong();
+        stats[1] = in.readLong();
+        stats[2] = in.readLong();
+        return new NonogramResult(state, (matrix != null) ? matrix : solutions.get(0), null, solutions, exhaustive, reason);
+    }
+
+    private static void writeMatrix(DataOutputStream out, int[][] m) throws IOException {
+        out.writeInt(m.length);
+        out.writeInt(m[0].length);
+        byte[] row = new byte[m[0].length];
+        for (int[] r : m) {
+            for (int j = 0; j < r.length; j++) {
+                row[j] = (byte) r[j];
+            }
+            out.write(row);
+        }
+    }
+
+    private static int[][] readMatrix(DataInputStream in) throws IOException {
+        int h = in.readInt(), w = in.readInt();
+        int[][] m = new int[h][w];
+        byte[] row = new byte[w];
+        for (int[] r : m) {
+            in.readFully(row);
+            for (int j = 0; j < w; j++) {
+                r[j] = row[j];
+            }
+        }
+        return m;
+    }
+
+    /**
+     * One worker process and its pipes
+     */
+    private class Worker {
+        private final Process process;
+        private final DataOutputStream to;
+        private final DataInputStream from;
+        private volatile long deadline = 0; // System.nanoTime() by which the next result is due, 0 for none
+        private volatile boolean killed = false; // killed by the watchdog
+
+        Worker(Process process) {
+            this.process = process;
+            to = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), 1 << 16));
+            from = new DataInputStream(new BufferedInputStream(process.getInputStream(), 1 << 16));
+        }
+
+        /**
+         * Sends the puzzles of a shard from a position on, giving up silently if the worker dies
+         */
+        void send(Shard shard, int from) {
+            try {
+                for (int k = from; k < shard.size(); k++) {
+                    NonogramPuzzle p = shard.puzzles.get(k);
+                    if (p != null) writePuzzle(to, shard.indices.get(k), p);
+                }
+                to.flush();
+            } catch (IOException e) {
+                // the receiving side sees the worker die
+            }
+        }
+
+        void arm(long millis) {
+            deadline = (millis > 0) ? System.nanoTime() + millis * 1_000_000 : 0;
+        }
+
+        /**
+         * Receives the result of a puzzle, adding its statistics to the run's
+         *
+         * @param index expected puzzle index
+         * @return result, or the message of a solve that threw
+         */
+        Object receive(int index) throws IOException {
+            long[] stats = new long[3];
+            Object r = readRecord(from, index, stats);
+            line_solves.add(stats[0]);
+            search_nodes.add(stats[1]);
+            solve_nanos.add(stats[2]);
+            return r;
+        }
+
+        /**
+         * Describes how the worker failed
+         */
+        String describe(IOException e) {
+            try {
+                if (process.waitFor(1, TimeUnit.SECONDS)) return "worker exited with status " + process.exitValue();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return String.valueOf(e);
+        }
+
+        /**
+         * Closes the input of the worker and waits for it to exit
+         */
+        void close() throws InterruptedException {
+            try {
+                to.writeInt(END);
+                to.flush();
+            } catch (IOException e) {
+                // already gone
+            }
+            if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+            live.remove(this);
+        }
+
+        void kill() {
+            deadline = 0;
+            process.destroyForcibly();
+            live.remove(this);
+        }
+    }
+
+    /**
+     * Puzzles of one shard and their results
+     */
+    private class Shard {
+        private final int number;
+        private final List<Integer> indices = new ArrayList<>();
+        private final List<NonogramPuzzle> puzzles = new ArrayList<>(); // null if the puzzle could not be parsed
+        private final List<NonogramResult> results = new ArrayList<>(); // null until solved, or if solving failed
+        private final List<String> errors = new ArrayList<>(); // why there is no result
+        private final StringBuilder quarantine = new StringBuilder(); // quarantine log lines
+
+        Shard(int number) {
+            this.number = number;
+        }
+
+        void add(int index, NonogramPuzzle puzzle, String error) {
+            indices.add(index);
+            puzzles.add(puzzle);
+            results.add(null);
+            errors.add(error);
+            if (puzzle == null) NonogramShardRunner.this.errors.increment();
+        }
+
+        int size() {
+            return indices.size();
+        }
+
+        /**
+         * Records what a worker sent back for a puzzle: a result, or the message of a solve that threw
+         */
+        void record(int k, Object r) {
+            if (r instanceof String) {
+                errors.set(k, "FAILED " + r);
+                quarantine(k, "FAILED " + r);
+                return;
+            }
+            NonogramResult result = (NonogramResult) r;
+            results.set(k, result);
+            switch (result.getState()) {
+                case SOLVED:
+                    solved.increment();
+                    break;
+                case IMPOSSIBLE:
+                    impossible.increment();
+                    break;
+                default:
+                    unsolved.increment();
+            }
+            if (result.getStopReason() == NonogramSolver.REASON.TIME_LIMIT) quarantine(k, "TIME_LIMIT stopped after " + time_limit + " ms");
+        }
+
+        void quarantine(int k, String cause) {
+            quarantine.append("puzzle ").append(indices.get(k)).append(' ').append(cause.replace('\n', ' ')).append('\n');
+            quarantined.increment();
+        }
+    }
+
+    /**
+     * Counts of a run
+     */
+    public static class Summary {
+        private final long solved, unsolved, impossible, errors, quarantined, restarts, shards;
+        private final long line_solves, search_nodes, solve_nanos, elapsed_nanos;
+        private final int total_shards;
+
+        private Summary(NonogramShardRunner r, int total_shards, long elapsed_nanos) {
+            solved = r.solved.sum();
+            unsolved = r.unsolved.sum();
+            impossible = r.impossible.sum();
+            errors = r.errors.sum();
+            quarantined = r.quarantined.sum();
+            restarts = r.restarts.sum();
+            shards = r.shards.sum();
+            line_solves = r.line_solves.sum();
+            search_nodes = r.search_nodes.sum();
+            solve_nanos = r.solve_nanos.sum();
+            this.total_shards = total_shards;
+            this.elapsed_nanos = elapsed_nanos;
+        }
+
+        public long getSolved() {
+            return solved;
+        }
+
+        public long getUnsolved() {
+            return unsolved;
+        }
+
+        public long getImpossible() {
+            return impossible;
+        }
+
+        /**
+         * Counts the puzzles of this run that could not be parsed
+         *
+         * @return number of puzzles
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getQuarantined() {
+            return quarantined;
+        }
+
+        /**
+         * Counts the workers replaced after dying or being killed
+         *
+         * @return number of restarts
+         */
+        public long getRestarts() {
+            return restarts;
+        }
+
+        /**
+         * Counts the shards solved by this run
+         *
+         * @return number of shards
+         */
+        public long getShards() {
+            return shards;
+        }
+
+        /**
+         * Counts the shards of the corpus, including those done by earlier runs
+         *
+         * @return number of shards
+         */
+        public int getTotalShards() {
+            return total_shards;
+        }
+
+        public long getLineSolves() {
+            return line_solves;
+        }
+
+        public long getSearchNodes() {
+            return search_nodes;
+        }
+
+        /**
+         * Sums the solve times reported by the workers
+         *
+         * @return nanoseconds
+         */
+        public long getSolveNanos() {
+            return solve_nanos;
+        }
+
+        public long getElapsedNanos() {
+            return elapsed_nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("shards=%d/%d solved=%d unsolved=%d impossible=%d errors=%d quarantined=%d restarts=%d lines=%d nodes=%d"
+                            + " solve=%.3fms elapsed=%.3fms", shards, total_shards, solved, unsolved, impossible, errors, quarantined, restarts,
+                    line_solves, search_nodes, solve_nanos / 1e6, elapsed_nanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streaming solution writer, the counterpart of {@link NonogramWriter}.
+ * <p>
+ * The text form writes a header line {@code puzzle <index> <STATE>} followed by one line per row, with '1' for filled,
+ * '0' for unfilled and '?' for undecided squares. A puzzle that could not be parsed is written as
+ * {@code puzzle <index> ERROR <message>}. The binary form writes, per puzzle, the varint index and a state byte
+ * ({@link NonogramSolver.STATE} ordinal, or 255 for an error). Results continue with the varint width and height and
+ * the row-major filled bitmap, followed by the decided bitmap unless the puzzle is solved. Errors continue with the
+ * varint length of the UTF-8 message and the message. The PBM form writes every result as a raw PBM (P4) image, filled
+ * squares black, with a {@code # puzzle <index> <STATE>} comment in its header; the images are concatenated, as the
+ * format allows. PBM cannot hold errors, so puzzles that could not be parsed are left out of it.
+ * <p>
+ * Rows are written one at a time into a 64 KiB buffer, so the output of a large grid needs no more memory than a row.
+ * <p>
+ * Methods are synchronized, so results can be written straight from the worker threads of a
+ * {@link NonogramBatchSolver}.
+ */
+public class NonogramSolutionWriter implements Closeable, Flushable {
+    static final int ERROR = 255; // binary state byte of a puzzle that could not be parsed
+
+    private final OutputStream out;
+    private final FORM form;
+    private byte[] row = new byte[0]; // reused row buffer
+
+    /**
+     * Creates a solution file, binary if the extension is .nonb, PBM if it is .pbm and text otherwise
+     *
+     * @param path file
+     * @throws IOException if the file cannot be created
+     */
+    public NonogramSolutionWriter(Path path) throws IOException {
+        this(Files.newOutputStream(path), FORM.fromPath(path));
+    }
+
+    /**
+     * Writes solutions to a stream
+     *
+     * @param out    destination, closed with the writer
+     * @param binary true for the binary form, false for text
+     */
+    public NonogramSolutionWriter(OutputStream out, boolean binary) {
+        this(out, binary ? FORM.BINARY : FORM.TEXT);
+    }
+
+    /**
+     * Writes solutions to a stream in a given form
+     *
+     * @param out  destination, closed with the writer
+     * @param form output form
+     */
+    public NonogramSolutionWriter(OutputStream out, FORM form) {
+        this.out = (out instanceof BufferedOutputStream) ? out : new BufferedOutputStream(out, 1 << 16);
+        this.form = form;
+    }
+
+    /**
+     * Appends the result of a puzzle
+     *
+     * @param index  puzzle index in the input stream
+     * @param result result
+     * @throws IOException if the result cannot be written
+     */
+    public synchronized void write(int index, NonogramResult result) throws IOException {
+        int[][] m = result.getMatrix();
+        if (form == FORM.BINARY) {
+            NonogramWriter.writeVarint(out, index);
+            out.write(result.getState().ordinal());
+            NonogramWriter.writeVarint(out, m[0].length);
+            NonogramWriter.writeVarint(out, m.length);
+            writeBitmap(m, 1);
+            if (!result.isSolved()) writeBitmap(m, -1);
+            return;
+        }
+        if (form == FORM.PBM) {
+            writePbm(index, result.getState(), m);
+            return;
+        }
+        out.write(("puzzle " + index + " " + result.getState() + "\n").getBytes(StandardCharsets.UTF_8));
+        byte[] b = rowBuffer(m[0].length + 1);
+        for (int[] r : m) {
+            for (int j = 0; j < r.length; j++) {
+                b[j] = (byte) ((r[j] == 1) ? '1' : (r[j] == 0) ? '0' : '?');
+            }
+            b[r.length] = '\n';
+            out.write(b, 0, r.length + 1);
+        }
+    }
+
+    /**
+     * Appends a puzzle that could not be parsed, so that it is not silently missing from the output
+     *
+     * @param index   puzzle index in the input stream
+     * @param message description of the problem
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void writeError(int index, String message) throws IOException {
+        if (form == FORM.PBM) return;
+        if (form == FORM.BINARY) {
+            byte[] b = message.getBytes(StandardCharsets.UTF_8);
+            NonogramWriter.writeVarint(out, index);
+            out.write(ERROR);
+            NonogramWriter.writeVarint(out, b.length);
+            out.write(b);
+            return;
+        }
+        out.write(("puzzle " + index + " ERROR " + message.replace('\n', ' ') + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Writes a raw PBM image of the filled squares, each row padded to whole bytes, most significant bit first
+     */
+    private void writePbm(int index, NonogramSolver.STATE state, int[][] m) throws IOException {
+        int width = m[0].length;
+        out.write(("P4\n# puzzle " + index + " " + state + "\n" + width + " " + m.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        int bytes = (width + 7) >>> 3;
+        byte[] b = rowBuffer(bytes);
+        for (int[] r : m) {
+            Arrays.fill(b, 0, bytes, (byte) 0);
+            for (int j = 0; j < width; j++) {
+                if (r[j] == 1) b[j >>> 3] |= (byte) (0x80 >>> (j & 7));
+            }
+            out.write(b, 0, bytes);
+        }
+    }
+
+    private byte[] rowBuffer(int size) {
+        if (row.length < size) row = new byte[size];
+        return row;
+    }
+
+    /**
+     * Writes a row-major bitmap of the squares holding a value, least significant bit first
+     *
+     * @param m matrix
+     * @param v 1 for the filled bitmap, -1 for the decided bitmap
+     */
+    private void writeBitmap(int[][] m, int v) throws IOException {
+        int bits = 0, n = 0;
+        for (int[] row : m) {
+            for (int x : row) {
+                boolean set = (v == 1) ? (x == 1) : (x != -1);
+                if (set) bits |= 1 << n;
+                if (++n == 8) {
+                    out.write(bits);
+                    bits = 0;
+                    n = 0;
+                }
+            }
+        }
+        if (n > 0) out.write(bits);
+    }
+
+    /**
+     * Enum to select the output form
+     */
+    public enum FORM {
+        TEXT, // puzzle header line and one line of '1', '0' and '?' per row
+        BINARY, // varint-framed bitmaps
+        PBM; // concatenated raw PBM images
+
+        /**
+         * Picks a form from a file extension: .nonb for binary, .pbm for PBM, anything else for text
+         *
+         * @param path file
+         * @return form
+         */
+        public static FORM fromPath(Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            if (name.endsWith(".nonb")) return BINARY;
+            if (name.endsWith(".pbm")) return PBM;
+            return TEXT;
+        }
+    }
+}
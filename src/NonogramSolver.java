@@ -1,226 +1,1089 @@
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class for solving nongrams.
  */
 public class NonogramSolver {
+    static final long PROGRESS_INTERVAL = 100; // milliseconds between progress reports
+
     private int[][] matrix; // Matrix: 1 denotes filled, 0 denotes unfilled, -1 denotes undecided
     private ArrayList<ArrayList<Integer>> row_params, column_params;
-    protected static Nonogram nonogram;
+    private Nonogram nonogram;
 
     /**
-     * Base constructor, initializes solver
+     * Base constructor, initializes solver with the overlap engine
      *
      * @param dims          nonogram puzzle dimensions
      * @param row_params    row segments
      * @param column_params column segments
      */
     public NonogramSolver(List<Integer> dims, ArrayList<ArrayList<Integer>> row_params, ArrayList<ArrayList<Integer>> column_params) {
-        STATE state = STATE.UNSOLVED;
-        matrix = new int[dims.get(1)][dims.get(0)];
-        for (int i = 0; i < matrix.length; i++) {
-            Arrays.fill(matrix[i], -1);
-        }
+        this(dims, row_params, column_params, new NonogramSolverOptions());
+    }
+
+    /**
+     * Initializes solver with a specific line engine
+     *
+     * @param dims          nonogram puzzle dimensions
+     * @param row_params    row segments
+     * @param column_params column segments
+     * @param engine        line engine
+     */
+    public NonogramSolver(List<Integer> dims, ArrayList<ArrayList<Integer>> row_params, ArrayList<ArrayList<Integer>> column_params, ENGINE engine) {
+        this(dims, row_params, column_params, new NonogramSolverOptions().setEngine(engine));
+    }
+
+    /**
+     * Initializes solver with options. Puzzles that line logic cannot finish are searched if the options allow it
+     *
+     * @param dims          nonogram puzzle dimensions
+     * @param row_params    row segments
+     * @param column_params column segments
+     * @param options       solver options
+     */
+    public NonogramSolver(List<Integer> dims, ArrayList<ArrayList<Integer>> row_params, ArrayList<ArrayList<Integer>> column_params, NonogramSolverOptions options) {
+        // The solver formats copies of the parameters, the caller's lists are left unchanged
         this.row_params = row_params;
         this.column_params = column_params;
 
-        nonogram = new Nonogram(matrix, state, row_params, column_params);
-        while (nonogram.getState() != STATE.SOLVED && nonogram.getState() != STATE.IMPOSSIBLE) {
-            nonogram.update();
-        }
+        nonogram = run(dims.get(0), dims.get(1), row_params, column_params, options);
         matrix = nonogram.getMatrix();
     }
 
+    /**
+     * Solves a puzzle. Keeps no state between calls and does not modify the puzzle or the options, so it can be
+     * called from any number of threads at once
+     *
+     * @param puzzle  puzzle
+     * @param options solver options
+     * @return final state and matrix
+     */
+    public static NonogramResult solve(NonogramPuzzle puzzle, NonogramSolverOptions options) {
+        NonogramResultCache results = options.getResultCache();
+        NonogramFingerprint fingerprint = null;
+        if (results != null) {
+            fingerprint = NonogramFingerprint.of(puzzle);
+            NonogramResult r = results.get(fingerprint, options.getSolutionLimit());
+            if (r != null) {
+                if (!options.isStats()) return r;
+                return new NonogramResult(r.getState(), r.getMatrix(), new NonogramStats(), r.getSolutions(), r.isExhaustive());
+            }
+        }
+        Nonogram n = run(puzzle.getWidth(), puzzle.getHeight(), puzzle.getRowParams(), puzzle.getColumnParams(), options);
+        NonogramResult r = new NonogramResult(n.getState(), n.getMatrix(), n.stats, n.getSolutions(), n.exhaustive, n.reason);
+        if (results != null) results.put(fingerprint, r);
+        return r;
+    }
+
+    /**
+     * Solves a puzzle with the default options
+     *
+     * @param puzzle puzzle
+     * @return final state and matrix
+     * @see #solve(NonogramPuzzle, NonogramSolverOptions)
+     */
+    public static NonogramResult solve(NonogramPuzzle puzzle) {
+        return solve(puzzle, new NonogramSolverOptions());
+    }
+
+    /**
+     * Propagates and, if needed and allowed, searches a fresh nonogram
+     *
+     * @param width         number of columns
+     * @param height        number of rows
+     * @param row_params    row segments, left unchanged
+     * @param column_params column segments, left unchanged
+     * @param options       solver options
+     * @return solved nonogram
+     */
+    private static Nonogram run(int width, int height, List<? extends List<Integer>> row_params, List<? extends List<Integer>> column_params, NonogramSolverOptions options) {
+        long start = System.nanoTime();
+        int[][] m = new int[height][width];
+        for (int i = 0; i < m.length; i++) {
+            Arrays.fill(m[i], -1);
+        }
+        Nonogram n = new Nonogram(m, STATE.UNSOLVED, row_params, column_params, options);
+        n.update();
+        if (n.getState() == STATE.SOLVED) {
+            n.solutions = List.of(n.snapshot());
+        }
+        n.exhaustive = n.getState() != STATE.UNSOLVED; // line logic only makes forced deductions
+        if (n.getState() == STATE.UNSOLVED && options.isSearch() && !n.control.stopped()) {
+            new NonogramSearch(n, options).search();
+        }
+        n.finish(options.getSolutionLimit());
+        if (n.stats != null) {
+            n.stats.totalTimed(System.nanoTime() - start);
+            NonogramMetrics.getInstance().add(n.stats);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the statistics of the solve
+     *
+     * @return statistics, or null unless {@link NonogramSolverOptions#setStats(boolean)} was on
+     */
+    public NonogramStats getStats() {
+        return nonogram.stats;
+    }
+
+    /**
+     * Returns the distinct solutions found, at most {@link NonogramSolverOptions#getSolutionLimit()}
+     *
+     * @return solutions, in the order they were found
+     * @see NonogramResult#getSolutions()
+     */
+    public List<int[][]> getSolutions() {
+        return nonogram.getSolutions();
+    }
+
+    /**
+     * Tells whether {@link #getSolutions()} is every solution of the puzzle
+     *
+     * @return true if the solution count is exact
+     * @see NonogramResult#isExhaustive()
+     */
+    public boolean isExhaustive() {
+        return nonogram.exhaustive;
+    }
+
+    /**
+     * Tells why the solve stopped
+     *
+     * @return stop reason
+     * @see NonogramResult#getStopReason()
+     */
+    public REASON getStopReason() {
+        return nonogram.reason;
+    }
+
+    /**
+     * Prints the state and the solutions to standard output, through one buffer rather than a write per square
+     */
     public void printNonogramSolution() {
-        System.out.println(nonogram.getState());
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        out.println(nonogram.getState());
         if (nonogram.getState() == STATE.SOLVED) {
-            System.out.println("SOLUTION");
-            for (int i = 0; i < matrix.length; i++) {
-                for (int j = 0; j < matrix[i].length; j++) {
-                    System.out.print(matrix[i][j] + " ");
+            List<int[][]> solutions = getSolutions();
+            if (solutions.size() == 1) {
+                out.println(nonogram.exhaustive ? "SOLUTION (unique)" : "SOLUTION");
+                printMatrix(out, matrix);
+            } else {
+                for (int k = 0; k < solutions.size(); k++) {
+                    out.println("SOLUTION " + (k + 1) + " of " + solutions.size() + (nonogram.exhaustive ? "" : "+"));
+                    printMatrix(out, solutions.get(k));
                 }
-                System.out.println();
             }
         }
+        out.flush();
+    }
+
+    private static void printMatrix(PrintWriter out, int[][] matrix) {
+        StringBuilder row = new StringBuilder();
+        for (int[] r : matrix) {
+            row.setLength(0);
+            for (int v : r) {
+                row.append(v).append(' ');
+            }
+            out.println(row);
+        }
     }
 
 
     /**
      * Base Nonogram Class
      */
-    private static class Nonogram {
-        private int[][] matrix;
-        private STATE state;
+    private static class Nonogram extends NonogramPropagator {
+        private NonogramGrid grid;
         private List<NonogramLine> rows;
         private List<NonogramLine> columns;
         private ArrayList<ArrayList<Integer>> row_params, column_params;
-
-        private int width; // number of columns
-        private int height; // number of rows
+        private ENGINE engine;
+        private NonogramLineCache cache; // shared line results, null if disabled
+        private boolean line_tables; // solve short lines from their NonogramLineTable
+        private long[] filled, empty; // known masks of the line being solved, sized for the longer orientation
+        private NonogramStats stats; // shared by every copy, null if statistics are off
+        private NonogramTrace trace; // propagation trace of stats, null if off
+        private List<NonogramGrid> solutions = List.of(); // distinct solutions found by the solve
+        private boolean exhaustive = false; // solutions holds every solution
+        private boolean parallel_lines; // solve the queued lines of a propagation round concurrently
+        private REASON reason = REASON.COMPLETE; // why the solve stopped, set once it has
 
         /**
          * Instantiates a Nonogram Structure
          *
          * @param m        matrix
          * @param s        state
-         * @param r_params row parameters
-         * @param c_params column parameters
+         * @param r_params row parameters, left unchanged
+         * @param c_params column parameters, left unchanged
+         * @param o        solver options
          */
-        public Nonogram(int[][] m, STATE s, ArrayList<ArrayList<Integer>> r_params, ArrayList<ArrayList<Integer>> c_params) {
-            matrix = m;
-            state = s;
+        public Nonogram(int[][] m, STATE s, List<? extends List<Integer>> r_params, List<? extends List<Integer>> c_params, NonogramSolverOptions o) {
+            super(m[0].length, m.length, new NonogramControl(o), s);
+            grid = new NonogramGrid(m);
+            engine = o.getEngine();
+            cache = o.getLineCache();
+            line_tables = o.isLineTables();
+            stats = o.isStats() ? new NonogramStats(o.getTraceCapacity()) : null;
+            trace = (stats != null) ? stats.getTrace() : null;
             rows = new ArrayList<NonogramLine>();
             columns = new ArrayList<NonogramLine>();
-            row_params = r_params;
-            column_params = c_params;
+            row_params = new ArrayList<>();
+            column_params = new ArrayList<>();
 
-            width = m[0].length;
-            height = m.length;
+            // Huge puzzles share out a fixed budget, so candidate memory does not grow with lines times line length
+            int candidate_limit = Math.min(NonogramLine.CANDIDATE_LIMIT, NonogramLine.CANDIDATE_BUDGET / (width + height));
 
             for (int i = 0; i < height; i++) {
-                NonogramLine n;
-                int[] lv = matrix[i]; // line values
-                ArrayList<Integer> params = r_params.get(i);
-
-                // Formatting Line Parameters i.e. the lengths of the "filled" and "unfilled" segments
-                var ps = params.size();
-                for (int j = 0; j < 2 * ps - 1; j++) {
-                    if (j % 2 != 0) {
-                        params.add(j, 0);
-                        j++;
-                    }
-                }
-                params.add(0, 0);
-                params.add(0);
-
-                n = new NonogramLine(lv, params);
+                ArrayList<Integer> params = format(r_params.get(i));
+                row_params.add(params);
+                NonogramLine n = new NonogramLine(width, params, line_tables);
+                n.stats = stats;
+                n.control = control;
+                n.candidate_limit = candidate_limit;
                 rows.add(n);
             }
 
             for (int i = 0; i < width; i++) {
-                NonogramLine n;
-                int[] lv = new int[height]; // line values
-                for (int j = 0; j < height; j++) {
-                    lv[i] = matrix[j][i];
-                }
-                ArrayList<Integer> params = c_params.get(i);
-
-                // Formatting Parameters
-                var ps = params.size();
-                for (int j = 0; j < 2 * ps - 1; j++) {
-                    if (j % 2 != 0) {
-                        params.add(j, 0);
-                        j++;
-                    }
-                }
-                params.add(0, 0);
-                params.add(0);
-
-                n = new NonogramLine(lv, params);
+                ArrayList<Integer> params = format(c_params.get(i));
+                column_params.add(params);
+                NonogramLine n = new NonogramLine(height, params, line_tables);
+                n.stats = stats;
+                n.control = control;
+                n.candidate_limit = candidate_limit;
                 columns.add(n);
             }
+
+            int words = Math.max(grid.getRowWords(), grid.getColumnWords());
+            filled = new long[words];
+            empty = new long[words];
+            queue.addAll();
+            parallel_lines = o.isParallelLines() && Math.max(width, height) >= o.getParallelLineThreshold();
+        }
+
+        /**
+         * Copies a Nonogram Structure, sharing its formatted parameters but none of its mutable state
+         *
+         * @param n nonogram to copy
+         */
+        public Nonogram(Nonogram n) {
+            super(n.width, n.height, n.control, n.state);
+            grid = new NonogramGrid(n.grid);
+            engine = n.engine;
+            cache = n.cache;
+            line_tables = n.line_tables;
+            stats = n.stats;
+            trace = n.trace;
+            parallel_lines = n.parallel_lines;
+            row_params = n.row_params;
+            column_params = n.column_params;
+            rows = new ArrayList<NonogramLine>();
+            columns = new ArrayList<NonogramLine>();
+            for (var r : n.rows) {
+                rows.add(new NonogramLine(r));
+            }
+            for (var c : n.columns) {
+                columns.add(new NonogramLine(c));
+            }
+            filled = new long[n.filled.length];
+            empty = new long[n.empty.length];
+        }
+
+        /**
+         * Formats line parameters, i.e. the lengths of the "filled" and "unfilled" segments: {@code [0, c1, 0, c2, ...,
+         * 0]}
+         *
+         * @param p segment lengths, left unchanged
+         * @return formatted copy
+         */
+        private static ArrayList<Integer> format(List<Integer> p) {
+            ArrayList<Integer> params = new ArrayList<>(2 * p.size() + 1);
+            params.add(0);
+            for (int c : p) {
+                params.add(c);
+                params.add(0);
+            }
+            return params;
         }
 
         /**
-         * Update nonogram states
+         * Propagates line logic until no queued line is left. Only lines crossing a newly decided square are queued
+         * again, so the state afterwards is SOLVED, IMPOSSIBLE, or UNSOLVED when line logic alone is stuck or the solve
+         * was stopped. A stopped propagation leaves the squares decided so far, and the lines still queued, in place
          */
         private void update() {
-            state = STATE.SOLVED;
-            // Forward row pass
-            for (int i = 0; i < rows.size(); i++) {
-                var r = rows.get(i);
-                if (rows.get(i).state != STATE.SOLVED) {
-                    r.update(matrix[i]);
-                    rows.set(i, r);
-                    matrix[i] = rows.get(i).values;
-                }
-                if (rows.get(i).state == STATE.UNSOLVED) {
+            if (stats == null) {
+                propagate();
+                return;
+            }
+            long start = System.nanoTime();
+            int decided = grid.getDecided();
+            propagate();
+            stats.passCompleted(grid.getDecided() - decided, System.nanoTime() - start);
+        }
+
+        /**
+         * Drains the work queue, see {@link #update()}
+         */
+        @Override
+        void propagate() {
+            if (parallel_lines) {
+                propagateParallel();
+                return;
+            }
+            super.propagate();
+        }
+
+        @Override
+        boolean solveLine(int l) {
+            return (l < height) ? updateRow(l) : updateColumn(l - height);
+        }
+
+        @Override
+        int getDecided() {
+            return grid.getDecided();
+        }
+
+        @Override
+        void revert(int cell, long cause) {
+            grid.clear(cell / width, cell % width);
+        }
+
+        @Override
+        long getValues(int cell) {
+            return 0b11;
+        }
+
+        @Override
+        void choose(int cell, int v) {
+            assign(cell / width, cell % width, v);
+            update();
+        }
+
+        /**
+         * Drains the work queue in rounds. Every line queued at the start of a round is solved concurrently against the
+         * grid as it stood, then the results are merged in queue order, so any conflict is found at the same line on
+         * every run. Line logic has a single fixed point, so the grid afterwards is identical to the sequential one;
+         * only the order of trace events and the number of line solves differ
+         */
+        private void propagateParallel() {
+            int[] lines = new int[height + width];
+            while (!queue.isEmpty()) {
+                if (control.stopped()) {
                     state = STATE.UNSOLVED;
-                    continue;
-                }
-                if (rows.get(i).state == STATE.IMPOSSIBLE) {
-                    state = STATE.IMPOSSIBLE;
                     return;
                 }
-            }
-            // Forward column pass
-            for (int i = 0; i < columns.size(); i++) {
-                var c = columns.get(i);
-                if (columns.get(i).state != STATE.SOLVED) {
-                    int[] m = new int[height];
-                    for (int j = 0; j < rows.size(); j++) {
-                        m[j] = matrix[j][i];
-                    }
-                    c.update(m);
-                    columns.set(i, c);
-                    for (int j = 0; j < height; j++) {
-                        matrix[j][i] = columns.get(i).values[j];
-                    }
+                control.progress(grid.getDecided(), width * height);
+                int n = 0;
+                while (!queue.isEmpty()) {
+                    lines[n++] = queue.poll();
                 }
-                if (columns.get(i).state == STATE.UNSOLVED) {
-                    state = STATE.UNSOLVED;
-                    continue;
+                long[][] known = new long[2 * n][];
+                for (int k = 0; k < n; k++) {
+                    int l = lines[k];
+                    int words = (l < height) ? grid.getRowWords() : grid.getColumnWords();
+                    known[2 * k] = new long[words];
+                    known[2 * k + 1] = new long[words];
+                    if (l < height) grid.row(l, known[2 * k], known[2 * k + 1]);
+                    else grid.column(l - height, known[2 * k], known[2 * k + 1]);
                 }
-                if (columns.get(i).state == STATE.IMPOSSIBLE) {
-                    state = STATE.IMPOSSIBLE;
-                    return;
+                new LineRound(this, lines, known, 0, n).invoke();
+                for (int k = 0; k < n; k++) {
+                    int l = lines[k];
+                    boolean ok = (l < height)
+                            ? rows.get(l).state != STATE.IMPOSSIBLE && mergeRow(l, known[2 * k], known[2 * k + 1])
+                            : columns.get(l - height).state != STATE.IMPOSSIBLE && mergeColumn(l - height, known[2 * k], known[2 * k + 1]);
+                    if (!ok) {
+                        state = STATE.IMPOSSIBLE;
+                        queue.clear();
+                        return;
+                    }
                 }
             }
-            boolean ff2 = false;
-            for (var a : matrix) {
-                for (var b : a) {
-                    if (b == -1) ff2 = true;
+            state = grid.isSolved() ? STATE.SOLVED : STATE.UNSOLVED;
+        }
+
+        /**
+         * Solves a row and queues the columns of newly decided squares
+         *
+         * @param i row index
+         * @return false on contradiction
+         */
+        private boolean updateRow(int i) {
+            var r = rows.get(i);
+            grid.row(i, filled, empty);
+            r.update(filled, empty, engine, cache);
+            if (r.state == STATE.IMPOSSIBLE) return false;
+            return mergeRow(i, filled, empty);
+        }
+
+        /**
+         * Solves a column and queues the rows of newly decided squares
+         *
+         * @param i column index
+         * @return false on contradiction
+         */
+        private boolean updateColumn(int i) {
+            var c = columns.get(i);
+            grid.column(i, filled, empty);
+            c.update(filled, empty, engine, cache);
+            if (c.state == STATE.IMPOSSIBLE) return false;
+            return mergeColumn(i, filled, empty);
+        }
+
+        /**
+         * Writes the squares a solved row decided beyond the masks it was solved from into the grid
+         *
+         * @param i row index
+         * @param f known-filled mask the row was solved from
+         * @param e known-empty mask the row was solved from
+         * @return false if a square was decided otherwise since the row was solved
+         */
+        private boolean mergeRow(int i, long[] f, long[] e) {
+            var r = rows.get(i);
+            for (int w = 0; w < grid.getRowWords(); w++) {
+                for (long b = r.filled[w] & ~f[w]; b != 0; b &= b - 1) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(b);
+                    if (!decide(i, j, 1, height + j, i)) return false;
+                }
+                for (long b = r.empty[w] & ~e[w]; b != 0; b &= b - 1) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(b);
+                    if (!decide(i, j, 0, height + j, i)) return false;
                 }
             }
-            if (ff2) {
-                state = STATE.UNSOLVED;
-                for (int i = 0; i < rows.size(); i++) {
-                    var tmp = rows.get(i);
-                    tmp.state = STATE.UNSOLVED;
-                    rows.set(i, tmp);
+            return true;
+        }
+
+        /**
+         * Writes the squares a solved column decided beyond the masks it was solved from into the grid
+         *
+         * @param i column index
+         * @param f known-filled mask the column was solved from
+         * @param e known-empty mask the column was solved from
+         * @return false if a square was decided otherwise since the column was solved
+         */
+        private boolean mergeColumn(int i, long[] f, long[] e) {
+            var c = columns.get(i);
+            for (int w = 0; w < grid.getColumnWords(); w++) {
+                for (long b = c.filled[w] & ~f[w]; b != 0; b &= b - 1) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(b);
+                    if (!decide(j, i, 1, j, height + i)) return false;
                 }
-                for (int i = 0; i < columns.size(); i++) {
-                    var tmp = columns.get(i);
-                    tmp.state = STATE.UNSOLVED;
-                    columns.set(i, tmp);
+                for (long b = c.empty[w] & ~e[w]; b != 0; b &= b - 1) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(b);
+                    if (!decide(j, i, 0, j, height + i)) return false;
                 }
-//                update(); // recurse
             }
+            return true;
+        }
+
+        /**
+         * Decides a square found by line logic and queues the crossing line. In a parallel round the square may already
+         * have been decided by an earlier line of the round
+         *
+         * @param i        row
+         * @param j        column
+         * @param v        1 for filled, 0 for unfilled
+         * @param crossing line to queue
+         * @param line     deciding line
+         * @return false if the square already holds the other value
+         */
+        private boolean decide(int i, int j, int v, int crossing, int line) {
+            int current = grid.get(i, j);
+            if (current == v) return true;
+            if (current != -1) return false;
+            grid.set(i, j, v);
+            queue.add(crossing);
+            if (trace != null) trace.record(line, i, j, v);
+            if (trail != null) trail.push(i * width + j, line);
+            return true;
+        }
+
+        /**
+         * Decides a square and queues its row and column
+         *
+         * @param i row
+         * @param j column
+         * @param v 1 for filled, 0 for unfilled
+         */
+        private void assign(int i, int j, int v) {
+            grid.set(i, j, v);
+            if (trace != null) trace.record(NonogramTrace.SEARCH, i, j, v);
+            if (trail != null) trail.push(i * width + j, NonogramTrail.ASSERTION);
+            queue.add(i);
+            queue.add(height + j);
+        }
+
+        /**
+         * Settles why the solve stopped and reports the final progress. A solve that found every solution it was
+         * asked for, or proved there is none, is complete even if a stop condition was met on the way
+         *
+         * @param limit solution limit
+         */
+        private void finish(int limit) {
+            boolean complete = state == STATE.IMPOSSIBLE || exhaustive || (state == STATE.SOLVED && solutions.size() >= limit);
+            reason = complete ? REASON.COMPLETE : control.getReason();
+            control.finish(grid.getDecided(), width * height);
+        }
+
+        /**
+         * Copies the nonogram, see {@link #Nonogram(Nonogram)}
+         *
+         * @return independent copy
+         */
+        private Nonogram copy() {
+            return new Nonogram(this);
+        }
+
+        /**
+         * Copies the current grid
+         *
+         * @return snapshot of the grid
+         */
+        private NonogramGrid snapshot() {
+            return new NonogramGrid(grid);
+        }
+
+        /**
+         * Returns to an unsolved snapshot. The snapshot itself is copied and can be restored again
+         *
+         * @param g snapshot of the grid
+         */
+        private void restore(NonogramGrid g) {
+            grid = new NonogramGrid(g);
+            queue.clear();
+            state = STATE.UNSOLVED;
+        }
+
+        /**
+         * Picks the undecided square whose row and column have the fewest undecided squares
+         *
+         * @return square index, i.e. row * width + column, or -1 if every square is decided
+         */
+        private int pickCell() {
+            int[] c_open = new int[width];
+            for (int j = 0; j < width; j++) {
+                c_open[j] = height - grid.columnDecided(j);
+            }
+            int best = -1, best_score = Integer.MAX_VALUE;
+            for (int i = 0; i < height; i++) {
+                int r_open = width - grid.rowDecided(i);
+                if (r_open == 0) continue;
+                for (int j = 0; j < width; j++) {
+                    if (r_open + c_open[j] < best_score && grid.get(i, j) == -1) {
+                        best = i * width + j;
+                        best_score = r_open + c_open[j];
+                    }
+                }
+            }
+            return best;
         }
 
         public int[][] getMatrix() {
-            return matrix;
+            return grid.toMatrix();
+        }
+
+        private List<int[][]> getSolutions() {
+            List<int[][]> list = new ArrayList<>(solutions.size());
+            for (NonogramGrid g : solutions) {
+                list.add(g.toMatrix());
+            }
+            return list;
+        }
+
+        private STATE getState() {
+            return state;
+        }
+    }
+
+    /**
+     * Depth-first search over undecided squares, layered on line propagation. With a parallelism above one the
+     * branches are explored as work-stealing tasks, each on its own copy of the nonogram.
+     * <p>
+     * The search stops once it has found as many distinct solutions as the solution limit. Every branch and probe
+     * records into the same solution set and stops on the same limit, so with a limit of 2 a second solution anywhere
+     * ends the whole search.
+     */
+    private static class NonogramSearch implements NonogramPropagator.Search<Nonogram> {
+        private final Nonogram nonogram;
+        private final boolean probing;
+        private final int parallelism;
+        private final long node_limit;
+        private final NonogramControl control; // time limit and cancellation, shared with the propagation
+        private final AtomicLong nodes = new AtomicLong();
+        private final int limit; // distinct solutions to find
+        private final List<NonogramGrid> solutions = new ArrayList<>(); // distinct solutions in the order found, guarded by this
+        private final Set<SolutionKey> seen = new HashSet<>(); // keys of solutions, guarded by this
+        private volatile int found = 0; // solutions.size(), readable without the lock
+
+        /**
+         * Instantiates a search over a propagated nonogram
+         *
+         * @param n nonogram
+         * @param o solver options
+         */
+        public NonogramSearch(Nonogram n, NonogramSolverOptions o) {
+            nonogram = n;
+            probing = o.isProbing();
+            parallelism = o.getParallelism();
+            node_limit = o.getNodeLimit();
+            control = n.control;
+            limit = o.getSolutionLimit();
         }
 
-        private STATE updateState() {
-            for (int i = 0; i < matrix.length; i++) {
-                for (int j = 0; j < matrix[i].length; j++) {
-                    if (matrix[i][j] == -1) return STATE.UNSOLVED;
+        /**
+         * Searches for solutions. The nonogram is left on the first solution found. If none is found because the
+         * search is exhausted or runs out of budget, the nonogram is returned to its propagated state, marked IMPOSSIBLE
+         * or UNSOLVED respectively
+         *
+         * @return final state
+         */
+        private STATE search() {
+            long start = System.nanoTime();
+            NonogramGrid root = nonogram.snapshot();
+            if (parallelism > 1) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new BranchTask(this, nonogram.copy()));
+                } finally {
+                    pool.shutdown();
                 }
+            } else {
+                branch(nonogram);
+            }
+            if (nonogram.stats != null) nonogram.stats.searched(nodes.get(), System.nanoTime() - start);
+            nonogram.solutions = List.copyOf(solutions);
+            boolean aborted = control.getReason() != REASON.COMPLETE; // a budget ran out, or the solve was cancelled
+            nonogram.exhaustive = !aborted && found < limit;
+            if (found > 0) {
+                nonogram.restore(solutions.get(0));
+                nonogram.state = STATE.SOLVED;
+                return STATE.SOLVED;
             }
-            for (int i = 0; i < rows.size(); i++) {
-                if (rows.get(i).state == STATE.IMPOSSIBLE) {
-                    return STATE.IMPOSSIBLE;
-                } else if (rows.get(i).state == STATE.UNSOLVED) {
-                    return STATE.UNSOLVED;
+            nonogram.restore(root);
+            if (!aborted) nonogram.state = STATE.IMPOSSIBLE;
+            return nonogram.getState();
+        }
+
+        /**
+         * Searches below the current, propagated state of a nonogram. The nonogram is left in an arbitrary state
+         *
+         * @param n nonogram
+         * @return SOLVED if some branch has found a solution, IMPOSSIBLE if no branch can, or UNSOLVED if stopped
+         *         before either is known
+         */
+        @Override
+        public STATE branch(Nonogram n) {
+            if (n.getState() == STATE.UNSOLVED && probing && !probe(n)) return STATE.IMPOSSIBLE;
+            if (n.getState() == STATE.SOLVED) {
+                found(n);
+                return STATE.SOLVED;
+            }
+            if (n.getState() == STATE.IMPOSSIBLE) return STATE.IMPOSSIBLE;
+            if (stopped()) return STATE.UNSOLVED;
+
+            int cell = n.pickCell();
+            int i = cell / n.width, j = cell % n.width;
+            if (parallelism > 1 && ForkJoinTask.inForkJoinPool() && ForkJoinTask.getSurplusQueuedTaskCount() < 2) {
+                // Hand the unfilled branch to an idle worker and continue with the filled branch
+                Nonogram other = n.copy();
+                other.assign(i, j, 0);
+                BranchTask task = new BranchTask(this, other);
+                task.fork();
+                STATE s = STATE.UNSOLVED;
+                if (tick()) {
+                    n.assign(i, j, 1);
+                    n.update();
+                    s = branch(n);
                 }
+                STATE t = task.join();
+                if (s == STATE.SOLVED || t == STATE.SOLVED) return STATE.SOLVED;
+                return (s == STATE.IMPOSSIBLE && t == STATE.IMPOSSIBLE) ? STATE.IMPOSSIBLE : STATE.UNSOLVED;
             }
 
-            for (int i = 0; i < columns.size(); i++) {
-                if (columns.get(i).state == STATE.IMPOSSIBLE) {
-                    return STATE.IMPOSSIBLE;
-                } else if (columns.get(i).state == STATE.UNSOLVED) {
-                    return STATE.UNSOLVED;
+            return NonogramPropagator.branch(n, cell, this); // filled first
+        }
+
+        /**
+         * Tries both values of every undecided square and locks in a value whenever the other one leads to a
+         * contradiction, until nothing more can be locked
+         *
+         * @param n nonogram
+         * @return false if some square has no consistent value
+         */
+        private boolean probe(Nonogram n) {
+            boolean changed = true;
+            while (changed && n.getState() == STATE.UNSOLVED) {
+                changed = false;
+                for (int i = 0; i < n.height; i++) {
+                    for (int j = 0; j < n.width; j++) {
+                        if (n.grid.get(i, j) != -1) continue;
+                        if (!tick()) return true;
+                        int base = n.mark();
+                        n.assign(i, j, 1);
+                        n.update();
+                        if (n.getState() == STATE.SOLVED && limit == 1) return true;
+                        if (n.getState() == STATE.SOLVED) found(n); // keep probing, more solutions are wanted
+                        boolean can_fill = n.getState() != STATE.IMPOSSIBLE;
+                        n.undo(base);
+                        n.assign(i, j, 0);
+                        n.update();
+                        if (n.getState() == STATE.SOLVED && limit == 1) return true;
+                        if (n.getState() == STATE.SOLVED) found(n);
+                        if (stopped()) return true;
+                        boolean can_empty = n.getState() != STATE.IMPOSSIBLE;
+                        if (!can_fill && !can_empty) return false;
+                        if (can_fill && can_empty) {
+                            n.undo(base);
+                            continue;
+                        }
+                        if (can_fill) { // the probe left the unfilled value in place, so only the filled value is locked in
+                            n.undo(base);
+                            n.assign(i, j, 1);
+                            n.update();
+                        }
+                        changed = true;
+                        if (n.getState() != STATE.UNSOLVED) return n.getState() != STATE.IMPOSSIBLE;
+                    }
                 }
             }
+            return true;
+        }
+
+        /**
+         * Records a solved nonogram unless the same solution was already found
+         *
+         * @param n solved nonogram
+         */
+        private synchronized void found(Nonogram n) {
+            if (found >= limit || !seen.add(new SolutionKey(n.grid.copyFilled()))) return;
+            solutions.add(n.snapshot());
+            found = solutions.size();
+        }
 
-            return STATE.SOLVED;
+        /**
+         * Counts a node against the budgets
+         *
+         * @return false once a budget is exhausted, the solve is cancelled or enough solutions have been found
+         */
+        @Override
+        public boolean tick() {
+            if (nodes.incrementAndGet() > node_limit) control.stop(REASON.NODE_LIMIT);
+            return !stopped();
         }
 
-        private STATE getState() {
-            return state;
+        @Override
+        public boolean stopped() {
+            return found >= limit || control.stopped();
+        }
+    }
+
+    /**
+     * Identity of a solved grid: its filled squares
+     */
+    private static class SolutionKey {
+        private final long[] filled;
+        private final int hash;
+
+        public SolutionKey(long[] f) {
+            filled = f;
+            hash = Arrays.hashCode(f);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SolutionKey && Arrays.equals(filled, ((SolutionKey) o).filled);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Fork-join task exploring one branch on its own copy of the nonogram
+     */
+    private static class BranchTask extends RecursiveTask<STATE> {
+        private static final long serialVersionUID = 1L;
+        private final NonogramSearch search;
+        private final Nonogram nonogram;
+
+        /**
+         * Instantiates a branch task
+         *
+         * @param s search the branch belongs to
+         * @param n nonogram copy owned by the task, with the branch square already assigned
+         */
+        public BranchTask(NonogramSearch s, Nonogram n) {
+            search = s;
+            nonogram = n;
+        }
+
+        @Override
+        protected STATE compute() {
+            if (!search.tick()) return STATE.UNSOLVED;
+            nonogram.update();
+            return search.branch(nonogram);
+        }
+    }
+
+    /**
+     * Solves a range of the lines of a parallel propagation round, each against its own copy of its known masks
+     */
+    private static class LineRound extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Nonogram nonogram;
+        private final int[] lines;
+        private final long[][] known; // known-filled and known-empty mask of each line, interleaved
+        private final int from, to;
+
+        LineRound(Nonogram nonogram, int[] lines, long[][] known, int from, int to) {
+            this.nonogram = nonogram;
+            this.lines = lines;
+            this.known = known;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int l = lines[from];
+                var line = (l < nonogram.height) ? nonogram.rows.get(l) : nonogram.columns.get(l - nonogram.height);
+                line.update(known[2 * from], known[2 * from + 1], nonogram.engine, nonogram.cache);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new LineRound(nonogram, lines, known, from, mid), new LineRound(nonogram, lines, known, mid, to));
+        }
+    }
+
+    /**
+     * Long-lived solver for a puzzle that is edited while it is being solved, e.g. in an editor.
+     * <p>
+     * Clue edits and square assertions are applied as deltas. Every decided square is logged with the line that
+     * decided it. An edit undoes the squares decided by the edited line (or the retracted assertion) and, transitively,
+     * every square decided by a line after one of its own squares was undone, since that deduction may have relied on
+     * it. Everything else was derived without the edit and is kept. Only the edited line and the lines that lost a
+     * square are queued again. The caller's clue lists are never modified. A session is not thread-safe.
+     * <p>
+     * The time limit of the options applies to each edit, and to each search of {@link #getResult()}, separately. An
+     * edit stopped by the time limit or the cancellation token leaves the squares decided so far; the next edit
+     * propagates the whole grid again.
+     */
+    public static class NonogramSession {
+        private static final int SESSION_CACHE_LINES = 64; // line cache entries per line when the options have no cache
+
+        private final NonogramSolverOptions options;
+        private final Nonogram nonogram;
+        private final int width, height;
+        private final List<List<Integer>> row_clues, column_clues; // current clues, unformatted
+        private final int[] asserted; // per square: -1 if not asserted, otherwise the asserted value
+        private boolean saturated; // every line is at its fixed point for the current grid
+
+        /**
+         * Starts a session and propagates the puzzle
+         *
+         * @param puzzle  initial puzzle
+         * @param options solver options. Search, if enabled, runs on a copy for {@link #getResult()} and never
+         *                changes the session state
+         */
+        public NonogramSession(NonogramPuzzle puzzle, NonogramSolverOptions options) {
+            this.options = options;
+            width = puzzle.getWidth();
+            height = puzzle.getHeight();
+            row_clues = new ArrayList<>(puzzle.getRowParams());
+            column_clues = new ArrayList<>(puzzle.getColumnParams());
+            int[][] m = new int[height][width];
+            for (int[] row : m) {
+                Arrays.fill(row, -1);
+            }
+            nonogram = new Nonogram(m, STATE.UNSOLVED, row_clues, column_clues, options);
+            nonogram.trail = new NonogramTrail(width * height);
+            if (nonogram.cache == null) {
+                // Most lines re-solved after an edit see the same squares as before the edit
+                nonogram.cache = new NonogramLineCache(SESSION_CACHE_LINES * (width + height));
+            }
+            asserted = new int[width * height];
+            Arrays.fill(asserted, -1);
+            nonogram.update();
+            saturated = nonogram.getState() != STATE.IMPOSSIBLE && nonogram.control.getReason() == REASON.COMPLETE;
+        }
+
+        /**
+         * Replaces the clues of a row
+         *
+         * @param i     row
+         * @param clues segment lengths, copied
+         * @return result after the edit
+         */
+        public NonogramResult setRowClues(int i, List<Integer> clues) {
+            return setClues(i, clues);
+        }
+
+        /**
+         * Replaces the clues of a column
+         *
+         * @param j     column
+         * @param clues segment lengths, copied
+         * @return result after the edit
+         */
+        public NonogramResult setColumnClues(int j, List<Integer> clues) {
+            return setClues(height + j, clues);
+        }
+
+        /**
+         * Asserts the value of a square, or retracts an assertion. An assertion that contradicts the clues makes the
+         * puzzle IMPOSSIBLE until it is retracted or the clues change
+         *
+         * @param i row
+         * @param j column
+         * @param v 1 for filled, 0 for unfilled, -1 to retract
+         * @return result after the edit
+         */
+        public NonogramResult assertCell(int i, int j, int v) {
+            if (v < -1 || v > 1) throw new IllegalArgumentException("Invalid square value: " + v);
+            int cell = i * width + j;
+            if (asserted[cell] == v) return getResult();
+            int retracted = -1;
+            if (asserted[cell] != -1) { // drop the old assertion, and everything derived from it
+                int k = nonogram.trail.find(cell);
+                if (k < nonogram.trail.size && nonogram.trail.values[k] == NonogramTrail.ASSERTION) retracted = k;
+            }
+            asserted[cell] = v;
+            rewind(-1, retracted);
+            return getResult();
+        }
+
+        /**
+         * Returns the current result. Without search this is the state line logic reached; with search enabled and
+         * line logic stuck, a copy is searched, with the time and node limits starting afresh
+         *
+         * @return result
+         */
+        public NonogramResult getResult() {
+            Nonogram n = nonogram;
+            if (n.getState() == STATE.UNSOLVED && options.isSearch()) n.control.restart(); // the copy shares the control
+            if (n.getState() == STATE.UNSOLVED && options.isSearch() && !n.control.stopped()) {
+                n = nonogram.copy();
+                new NonogramSearch(n, options).search();
+                n.finish(options.getSolutionLimit());
+                return new NonogramResult(n.getState(), n.getMatrix(), n.stats, n.getSolutions(), n.exhaustive, n.reason);
+            }
+            int[][] m = n.getMatrix();
+            List<int[][]> solutions = (n.getState() == STATE.SOLVED) ? List.<int[][]>of(m) : List.<int[][]>of();
+            REASON reason = (n.getState() == STATE.UNSOLVED) ? n.control.getReason() : REASON.COMPLETE;
+            n.control.finish(n.grid.getDecided(), width * height);
+            return new NonogramResult(n.getState(), m, n.stats, solutions, n.getState() != STATE.UNSOLVED, reason);
+        }
+
+        /**
+         * Returns the puzzle with the current clues
+         *
+         * @return puzzle
+         */
+        public NonogramPuzzle getPuzzle() {
+            return new NonogramPuzzle(width, height, row_clues, column_clues);
+        }
+
+        /**
+         * Replaces the clues of a line
+         *
+         * @param line  line index: rows are 0..height-1, columns are height..height+width-1
+         * @param clues segment lengths
+         */
+        private NonogramResult setClues(int line, List<Integer> clues) {
+            for (int c : clues) {
+                if (c < 0) throw new IllegalArgumentException("Negative clue: " + clues);
+            }
+            List<Integer> copy = List.copyOf(clues);
+            if (copy.equals((line < height) ? row_clues.get(line) : column_clues.get(line - height))) return getResult();
+            ArrayList<Integer> params = Nonogram.format(copy);
+            NonogramLine old = (line < height) ? nonogram.rows.get(line) : nonogram.columns.get(line - height);
+            NonogramLine l;
+            if (line < height) {
+                row_clues.set(line, copy);
+                nonogram.row_params.set(line, params);
+                l = new NonogramLine(width, params, nonogram.line_tables);
+                nonogram.rows.set(line, l);
+            } else {
+                column_clues.set(line - height, copy);
+                nonogram.column_params.set(line - height, params);
+                l = new NonogramLine(height, params, nonogram.line_tables);
+                nonogram.columns.set(line - height, l);
+            }
+            l.stats = nonogram.stats;
+            l.control = nonogram.control;
+            l.candidate_limit = old.candidate_limit;
+            rewind(line, -1);
+            return getResult();
+        }
+
+        /**
+         * Undoes the decisions that may depend on an edit, then re-propagates from the remaining, still consistent
+         * state
+         *
+         * @param line      edited line, whose decisions are undone, or -1
+         * @param retracted log position of a retracted assertion, or -1
+         */
+        private void rewind(int line, int retracted) {
+            nonogram.control.restart();
+            NonogramTrail t = nonogram.trail;
+            boolean[] tainted = new boolean[width + height]; // lines that lost a square so far
+            int kept = 0;
+            for (int k = 0; k < t.size; k++) {
+                int cell = t.cells[k], cause = (int) t.values[k];
+                int r = cell / width, c = height + cell % width;
+                if (cause == line || k == retracted || (cause != NonogramTrail.ASSERTION && tainted[cause])) {
+                    nonogram.grid.clear(r, c - height);
+                    tainted[r] = true;
+                    tainted[c] = true;
+                } else {
+                    t.cells[kept] = cell;
+                    t.values[kept] = cause;
+                    kept++;
+                }
+            }
+            t.size = kept;
+            nonogram.queue.clear();
+            if (!saturated) {
+                nonogram.queue.addAll();
+            } else {
+                // Lines that kept all their squares are still at their fixed point
+                for (int l = 0; l < width + height; l++) {
+                    if (tainted[l]) nonogram.queue.add(l);
+                }
+                if (line >= 0) nonogram.queue.add(line);
+            }
+            nonogram.state = STATE.UNSOLVED;
+            for (int cell = 0; cell < asserted.length; cell++) {
+                if (asserted[cell] == -1) continue;
+                int v = nonogram.grid.get(cell / width, cell % width);
+                if (v == -1) {
+                    nonogram.assign(cell / width, cell % width, asserted[cell]);
+                } else if (v != asserted[cell]) {
+                    nonogram.state = STATE.IMPOSSIBLE;
+                    nonogram.queue.clear();
+                    saturated = false;
+                    return;
+                }
+            }
+            nonogram.update();
+            saturated = nonogram.getState() != STATE.IMPOSSIBLE && nonogram.control.getReason() == REASON.COMPLETE;
         }
     }
 
@@ -228,173 +1091,266 @@ public class NonogramSolver {
      * Base Class For a Line
      */
     private static class NonogramLine {
+        private static final int CANDIDATE_LIMIT = 1 << 16; // most longs of candidates a line keeps between updates
+        private static final int CANDIDATE_BUDGET = 1 << 23; // most longs of candidates all lines of a nonogram keep
+        private static final int INTERRUPT_MASK = (1 << 12) - 1; // an enumeration checks for a stop every 4096 placements
+
         /**
          * Base Properties
          */
-        private int[] values;
+        private long[] filled, empty; // known-filled and known-empty masks of the squares
+        private long[] known_filled, known_empty; // masks the line was last updated from
+        private int length;
         private ArrayList<Integer> params;
-        private ArrayList<NonogramLine> possibilities;
+        private int[] clues; // segment lengths, i.e. the odd entries of params
+        private NonogramCandidates candidates; // enumerated placements, null until the enumeration engine first runs
+        private int[] table; // every placement of a short line, see NonogramLineTable; null to use the engine
+        private int candidate_limit = CANDIDATE_LIMIT; // most longs of candidates kept
         private STATE state;
         private int p_sum = 0;
+        private NonogramStats stats; // null if statistics are off
+        private NonogramControl control; // stops long enumerations, null if the line is solved on its own
+        private long generated, rejected; // candidates of the last enumeration
+        private boolean interrupted; // the last enumeration was stopped before it finished
 
         /**
-         * Instantiates a Nonogram Line Structure
+         * Instantiates an undecided Nonogram Line Structure
          *
-         * @param v determined integer values of each square
-         * @param p parameters
+         * @param l      length
+         * @param p      parameters
+         * @param tables look up the line's NonogramLineTable, building it if needed
          */
-        public NonogramLine(int[] v, ArrayList<Integer> p) {
-            this(v, p, STATE.UNSOLVED);
+        public NonogramLine(int l, ArrayList<Integer> p, boolean tables) {
+            filled = new long[NonogramGrid.words(l)];
+            empty = new long[NonogramGrid.words(l)];
+            length = l;
+            params = p;
+            state = STATE.UNSOLVED;
+
+            for (Integer param : params) { // Calculate sum of parameters, useful calculating permutations
+                p_sum += param;
+            }
+            clues = new int[params.size() / 2];
+            for (int i = 1; i < params.size(); i += 2) {
+                clues[i / 2] = params.get(i);
+            }
+            if (tables) table = NonogramLineTable.getInstance().placements(clues, l);
         }
 
         /**
-         * Instantiates a Nonogram Line Structure
+         * Copies a Nonogram Line Structure, sharing its parameters and, until either line is updated, its candidates
          *
-         * @param v determined integer values of each square
-         * @param p parameters
-         * @param s state
+         * @param l line to copy
          */
-        public NonogramLine(int[] v, ArrayList<Integer> p, STATE s) {
-            values = v;
-            params = p;
-            possibilities = new ArrayList<NonogramLine>();
-            state = s;
+        public NonogramLine(NonogramLine l) {
+            this(l.length, l.params, false);
+            stats = l.stats;
+            control = l.control;
+            candidate_limit = l.candidate_limit;
+            table = l.table;
+            if (l.candidates != null) candidates = new NonogramCandidates(l.candidates);
+        }
 
-            for (Integer param : params) { // Calculate sum of parameters, useful calculating permutations
-                p_sum += param;
+        /**
+         * Updates the line masks from the cache, solving and caching the line on a miss. Lines with a table skip the
+         * cache, looking them up costs more than solving them
+         *
+         * @param f     current known-filled mask, left unchanged
+         * @param e     current known-empty mask, left unchanged
+         * @param en    line engine
+         * @param cache line result cache, may be null
+         */
+        private void update(long[] f, long[] e, ENGINE en, NonogramLineCache cache) {
+            if (cache == null || table != null) {
+                update(f, e, en);
+                if (stats != null) stats.lineSolved(generated, rejected, null);
+                return;
             }
+            var key = new NonogramLineCache.Key(clues, length, f, e);
+            Boolean cached = cache.get(key, filled, empty);
+            if (cached != null) {
+                if (cached) updateState();
+                else this.state = STATE.IMPOSSIBLE;
+                if (stats != null) stats.lineSolved(0, 0, true);
+                return;
+            }
+            update(f, e, en);
+            if (!interrupted) cache.put(key, filled, empty, state != STATE.IMPOSSIBLE);
+            if (stats != null) stats.lineSolved(generated, rejected, false);
         }
 
         /**
-         * Updates matrix values by solving the next iteration of the NonogramLine
+         * Updates the line masks by solving the next iteration of the NonogramLine
          *
-         * @param v
+         * @param f  current known-filled mask, left unchanged
+         * @param e  current known-empty mask, left unchanged
+         * @param en line engine
          */
-        private void update(int[] v) {
+        private void update(long[] f, long[] e, ENGINE en) {
             // Update values
-            values = v;
-            possibilities.clear();
-            // Check if already solved or is still unsolved
-            if (Arrays.asList(v).contains(-1)) {
-                state = STATE.UNSOLVED;
+            known_filled = f;
+            known_empty = e;
+            generated = 0;
+            rejected = 0;
+            interrupted = false;
+            if (table != null) {
+                if (!NonogramLineTable.solve(table, length, f, e, filled, empty)) this.state = STATE.IMPOSSIBLE;
+                else updateState();
+                if (stats != null) stats.tableSolved();
+                return;
+            }
+            long start = (stats != null) ? System.nanoTime() : 0;
+            if (en == ENGINE.OVERLAP) {
+                overlap();
+                if (stats != null) stats.overlapTimed(System.nanoTime() - start);
+                return;
+            }
+
+            // Update states
+            var words = filled.length;
+            long[] common = new long[words], union = new long[words]; // AND and OR of the accepted possibilities
+            if (candidates == null) candidates = new NonogramCandidates(words, candidate_limit);
+            boolean found;
+            if (candidates.covers(f, e)) {
+                // The known squares only grew since the last enumeration, so the stored candidates just need filtering
+                rejected = candidates.filter(f, e, common, union);
+                found = candidates.size() > 0;
+                if (stats != null) stats.enumerationTimed(0, System.nanoTime() - start);
             } else {
-                ArrayList<Integer> v_segmented = new ArrayList<>();
-                for (int i = 0; i < v.length; i++) {
-                    if (v[i] == 1) {
-                        if (i > 0 && v[i] == v[i - 1] && v[i] == 1)
-                            v_segmented.set(v_segmented.size() - 1, v_segmented.get(v_segmented.size() - 1) + 1);
-                        else if (v[i] == 1)
-                            v_segmented.add(1);
-                    }
-                }
-                if (v_segmented == params) {
-                    this.state = STATE.SOLVED;
+                found = findPossibilities(common, union);
+                if (stats != null) stats.enumerationTimed(System.nanoTime() - start, 0);
+                if (interrupted) { // nothing was learned, the masks stay as they were
+                    System.arraycopy(f, 0, filled, 0, words);
+                    System.arraycopy(e, 0, empty, 0, words);
+                    updateState();
                     return;
                 }
             }
-
-            // Update states
-            findPossibilities();
-            if (possibilities.size() < 1) {
+            if (!found) {
                 this.state = STATE.IMPOSSIBLE;
                 return;
             }
-            if (possibilities.size() > 1)
-                values = findCommonalities(possibilities.size() - 1, possibilities.get(possibilities.size() - 1).values);
-            else if (possibilities.size() == 1) {
-                values = possibilities.get(0).values;
-                possibilities.add(new NonogramLine(values, params, (Arrays.asList(values).contains(-1)) ? STATE.SOLVED : STATE.UNSOLVED));
+            for (int w = 0; w < words; w++) {
+                filled[w] = common[w];
+                empty[w] = ~union[w] & NonogramGrid.lengthMask(length, w);
             }
+            updateState();
+        }
 
-            if (Arrays.asList(values).contains(-1)) {
-                this.state = STATE.UNSOLVED;
-            } else {
-                this.state = STATE.SOLVED;
+        /**
+         * Solves the line with the polynomial-time overlap solver
+         *
+         * @see NonogramLineSolver
+         */
+        private void overlap() {
+            if (!NonogramLineSolver.solve(clues, length, known_filled, known_empty, filled, empty)) {
+                this.state = STATE.IMPOSSIBLE;
+                return;
             }
+            updateState();
         }
 
         /**
-         * Recursively possibilities from current state
+         * Marks the line SOLVED once every square is decided
          */
-        private void findPossibilities() {
-            var v = values;
-            var m_sum = values.length - p_sum;
+        private void updateState() {
+            this.state = STATE.SOLVED;
+            for (int w = 0; w < filled.length; w++) {
+                if ((filled[w] | empty[w]) != NonogramGrid.lengthMask(length, w)) {
+                    this.state = STATE.UNSOLVED;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Enumerates the possibilities consistent with the current state into the candidate store, intersecting them
+         * on the way. Once the store is full, the remaining possibilities are only intersected, stopping early once
+         * they can no longer force any undecided square. A stopped solve interrupts the enumeration, see
+         * {@link #interrupted}
+         *
+         * @param common set to the AND of the accepted possibilities
+         * @param union  set to the OR of the accepted possibilities
+         * @return false if no possibility is consistent
+         */
+        private boolean findPossibilities(long[] common, long[] union) {
+            var m_sum = length - p_sum;
             var r_min = 0;
             var r_max = m_sum;
             var length = (int) Math.ceil(params.size() / 2d);
+            var words = filled.length;
+
+            long[] permutationFilled = new long[words]; // reused frame, the store copies accepted possibilities
+            long[] accepted = {0};
+            candidates.reset(known_filled, known_empty);
 
-            // Calculate all Possibilities with Permutation Util
+            // Generate all Possibilities with Permutation Util
             NonogramPermutationUtil util = new NonogramPermutationUtil(r_min, r_max, m_sum, length);
-            var permutations = util.getPermutations();
-            // Verify all Possibilities
-            main_loop:
-            for (var p : permutations) {
-                ArrayList<Integer> formattedPermutation = new ArrayList<>();
-                for (int i = 0; i < params.size(); i++) {
-                    if (i % 2 == 0) {
-                        formattedPermutation.add(p[i / 2]);
-                    } else {
-                        formattedPermutation.add(params.get(i));
-                    }
+            util.forEach(p -> {
+                if ((++generated & INTERRUPT_MASK) == 0 && control != null && control.stopped()) {
+                    interrupted = true;
+                    candidates.drop(); // the store is incomplete
+                    return false;
                 }
-                // Now there exists a formatted permutations of alternating 0's and 1's that contain a possible nonogram sequence
-                // The actual values can
-                int[] permutationValues = new int[values.length];
+                // Expand the segments between the gaps into the filled mask
+                Arrays.fill(permutationFilled, 0);
                 int tp_sum = 0;
-                for (int i = 0; i < formattedPermutation.size(); i++) { // Populates actual value array
-                    Arrays.fill(permutationValues, tp_sum, tp_sum + formattedPermutation.get(i), (i % 2 == 0) ? 0 : 1);
-                    tp_sum += formattedPermutation.get(i);
+                for (int i = 0; i < params.size(); i++) {
+                    int segment = (i % 2 == 0) ? p[i / 2] : params.get(i);
+                    if (i % 2 != 0) NonogramGrid.setRange(permutationFilled, 0, tp_sum, tp_sum + segment);
+                    tp_sum += segment;
                 }
-                // Now it is intended to corroborate whether the permutation matches with the actual values, ie if there is a 0 in the permutation value at an index, there isn't a 1 there in the original array or vice versa
-                for (int i = 0; i < values.length; i++) {
-                    if ((values[i] == 1 && permutationValues[i] == 0) || (values[i] == 0 && permutationValues[i] == 1)) {
-                        continue main_loop;
+                // Now it is intended to corroborate whether the permutation matches with the known squares, ie it fills no known-empty square and leaves no known-filled square empty
+                for (int w = 0; w < words; w++) {
+                    if ((permutationFilled[w] & known_empty[w]) != 0 || (~permutationFilled[w] & known_filled[w]) != 0) {
+                        rejected++;
+                        return true;
                     }
                 }
-                // If everything passes, the permutation is appended to the possibilities of the nonogram line with the same line parameters as the original line
-                NonogramLine n = new NonogramLine(permutationValues, params, STATE.SOLVED);
-                possibilities.add(n);
-            }
-        }
-
-        /**
-         * Returns the possible versions of the nonogram line
-         */
-        private ArrayList<NonogramLine> getPossibilities() {
-            return possibilities;
-        }
-
-        /**
-         * Back-propagates to find commonalities in all possibilities
-         */
-        private int[] findCommonalities(int i, int[] cur) {
-            if (i == 1) {
-                for (int x = 0; x < cur.length; x++) {
-                    cur[x] = (cur[x] == possibilities.get(0).values[x]) ? cur[x] : -1;
-                }
-                return cur;
-            } else {
-                var dur = possibilities.get(i - 1).values;
-                boolean end_condition = true;
-                for (int x = 0; x < cur.length; x++) {
-                    cur[x] = (cur[x] == dur[x]) ? cur[x] : -1;
-                    if (cur[x] != -1) {
-                        end_condition = false;
+                // If everything passes, the permutation is stored and folded into the running intersection
+                boolean kept = candidates.add(permutationFilled);
+                boolean open = false; // whether all accepted possibilities still agree on an undecided square
+                for (int w = 0; w < words; w++) {
+                    if (accepted[0] == 0) {
+                        common[w] = permutationFilled[w];
+                        union[w] = permutationFilled[w];
+                    } else {
+                        common[w] &= permutationFilled[w];
+                        union[w] |= permutationFilled[w];
                     }
+                    long undecided = ~(known_filled[w] | known_empty[w]) & NonogramGrid.lengthMask(this.length, w);
+                    if (((common[w] | ~union[w]) & undecided) != 0) open = true;
                 }
-                if (end_condition) {
-                    return cur;
-                }
-
-                return findCommonalities(i - 1, cur);
-            }
+                accepted[0]++;
+                // A complete store needs every possibility; otherwise further possibilities cannot force anything once every undecided square has been contradicted
+                return kept || open;
+            });
+            return accepted[0] > 0;
         }
     }
 
+    /**
+     * Enum to select the line engine
+     */
+    public enum ENGINE {
+        ENUMERATION, // enumerates every placement and intersects them
+        OVERLAP // polynomial-time left/right overlap solver
+    }
+
+    /**
+     * Enum to tell why a solve stopped
+     */
+    public enum REASON {
+        COMPLETE, // ran to its end: solved, proved impossible, found enough solutions, or line logic is stuck and search is off
+        CANCELLED, // the cancellation token was cancelled
+        TIME_LIMIT, // the time limit passed
+        NODE_LIMIT // the search node limit was reached
+    }
+
     /**
      * Enum to store solver states
      */
-    private enum STATE {
+    public enum STATE {
         SOLVED,
         UNSOLVED,
         IMPOSSIBLE
@@ -0,0 +1,271 @@
+import java.util.function.DoubleConsumer;
+
+/**
+ * Options for {@link NonogramSolver}.
+ * <p>
+ * Setters return the options object so that they can be chained.
+ */
+public class NonogramSolverOptions {
+    private NonogramSolver.ENGINE engine = NonogramSolver.ENGINE.OVERLAP; // scales to long lines, unlike ENUMERATION
+    private boolean search = true; // branch on undecided squares when line logic is stuck
+    private boolean probing = true; // lock squares whose other value leads to a contradiction
+    private int parallelism = 1; // number of search threads
+    private boolean parallelLines = false; // solve the queued lines of a propagation round concurrently
+    private int parallelLineThreshold = 100; // squares along the longer side from which parallelLines applies
+    private long nodeLimit = Long.MAX_VALUE; // maximum number of search nodes, probes included
+    private long timeLimit = 0; // maximum solve time in milliseconds, 0 for none
+    private NonogramCancellationToken cancellationToken = null; // stops solves from another thread, null for none
+    private DoubleConsumer progressListener = null; // receives the fraction of squares decided, null for none
+    private boolean lineTables = true; // solve lines of up to NonogramLineTable.MAX_LENGTH squares from a table
+    private NonogramLineCache lineCache = null; // line results shared by every solve using these options
+    private NonogramResultCache resultCache = null; // whole-puzzle results shared by every solve using these options
+    private int solutionLimit = 1; // distinct solutions to find before stopping
+    private boolean stats = false; // record NonogramStats for every solve
+    private int traceCapacity = 0; // propagation events kept per solve, 0 for no trace
+
+    /**
+     * Instantiates the default options
+     */
+    public NonogramSolverOptions() {
+    }
+
+    /**
+     * Copies options, sharing their line cache
+     *
+     * @param o options to copy
+     */
+    public NonogramSolverOptions(NonogramSolverOptions o) {
+        engine = o.engine;
+        search = o.search;
+        probing = o.probing;
+        parallelism = o.parallelism;
+        parallelLines = o.parallelLines;
+        parallelLineThreshold = o.parallelLineThreshold;
+        nodeLimit = o.nodeLimit;
+        timeLimit = o.timeLimit;
+        cancellationToken = o.cancellationToken;
+        progressListener = o.progressListener;
+        lineTables = o.lineTables;
+        lineCache = o.lineCache;
+        resultCache = o.resultCache;
+        solutionLimit = o.solutionLimit;
+        stats = o.stats;
+        traceCapacity = o.traceCapacity;
+    }
+
+    public NonogramSolver.ENGINE getEngine() {
+        return engine;
+    }
+
+    public NonogramSolverOptions setEngine(NonogramSolver.ENGINE engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public boolean isSearch() {
+        return search;
+    }
+
+    public NonogramSolverOptions setSearch(boolean search) {
+        this.search = search;
+        return this;
+    }
+
+    public boolean isProbing() {
+        return probing;
+    }
+
+    public NonogramSolverOptions setProbing(boolean probing) {
+        this.probing = probing;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public NonogramSolverOptions setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public boolean isParallelLines() {
+        return parallelLines;
+    }
+
+    /**
+     * Solves the lines queued in a propagation round concurrently, on the fork-join pool of the calling search thread
+     * or the common pool. Results are merged in a fixed order and are identical to the sequential ones
+     *
+     * @param parallelLines true to solve lines in parallel on puzzles reaching the threshold
+     * @return these options
+     * @see #setParallelLineThreshold(int)
+     */
+    public NonogramSolverOptions setParallelLines(boolean parallelLines) {
+        this.parallelLines = parallelLines;
+        return this;
+    }
+
+    public int getParallelLineThreshold() {
+        return parallelLineThreshold;
+    }
+
+    /**
+     * Sets the puzzle size from which lines are solved in parallel, so that small puzzles do not pay for the
+     * coordination
+     *
+     * @param parallelLineThreshold squares along the longer side of the puzzle
+     * @return these options
+     */
+    public NonogramSolverOptions setParallelLineThreshold(int parallelLineThreshold) {
+        this.parallelLineThreshold = parallelLineThreshold;
+        return this;
+    }
+
+    public long getNodeLimit() {
+        return nodeLimit;
+    }
+
+    public NonogramSolverOptions setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+        return this;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Limits the time of a solve, propagation included. A solve that runs out of time returns its partial grid with
+     * {@link NonogramSolver.REASON#TIME_LIMIT}
+     *
+     * @param timeLimit maximum solve time in milliseconds, 0 for none
+     * @return these options
+     */
+    public NonogramSolverOptions setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+        return this;
+    }
+
+    public NonogramCancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    /**
+     * Lets solves be stopped from another thread. A cancelled solve returns its partial grid with
+     * {@link NonogramSolver.REASON#CANCELLED}
+     *
+     * @param cancellationToken token, null for none
+     * @return these options
+     */
+    public NonogramSolverOptions setCancellationToken(NonogramCancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        return this;
+    }
+
+    public DoubleConsumer getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Reports the progress of long solves, at most every {@value NonogramSolver#PROGRESS_INTERVAL} milliseconds and
+     * once when the solve ends. The listener receives the fraction of squares decided in the grid being propagated;
+     * during search that is the current branch, so the fraction can drop when the search backtracks. It is called on
+     * the solving threads, one call at a time, and should return quickly
+     *
+     * @param progressListener listener of the fraction decided, from 0 to 1, null for none
+     * @return these options
+     */
+    public NonogramSolverOptions setProgressListener(DoubleConsumer progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    public boolean isLineTables() {
+        return lineTables;
+    }
+
+    /**
+     * Solves lines of up to {@value NonogramLineTable#MAX_LENGTH} squares from a {@link NonogramLineTable} instead of
+     * the line engine. Both give the same result; off, every line goes through the engine, e.g. to measure it
+     *
+     * @param lineTables true to use line tables
+     * @return these options
+     */
+    public NonogramSolverOptions setLineTables(boolean lineTables) {
+        this.lineTables = lineTables;
+        return this;
+    }
+
+    public NonogramLineCache getLineCache() {
+        return lineCache;
+    }
+
+    public NonogramSolverOptions setLineCache(NonogramLineCache lineCache) {
+        this.lineCache = lineCache;
+        return this;
+    }
+
+    public NonogramResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Answers repeated puzzles, including mirrored and transposed copies, from a cache of earlier results without
+     * solving them. A result from the cache carries empty statistics
+     *
+     * @param resultCache result cache, null for none
+     * @return these options
+     */
+    public NonogramSolverOptions setResultCache(NonogramResultCache resultCache) {
+        this.resultCache = resultCache;
+        return this;
+    }
+
+    public int getSolutionLimit() {
+        return solutionLimit;
+    }
+
+    /**
+     * Keeps searching until this many distinct solutions are found or the search is exhausted. A limit of 2 gives a
+     * uniqueness verdict, see {@link NonogramResult#isUnique()}
+     *
+     * @param solutionLimit maximum number of solutions, at least 1
+     * @return these options
+     */
+    public NonogramSolverOptions setSolutionLimit(int solutionLimit) {
+        if (solutionLimit < 1) throw new IllegalArgumentException("Solution limit must be positive: " + solutionLimit);
+        this.solutionLimit = solutionLimit;
+        return this;
+    }
+
+    public boolean isStats() {
+        return stats;
+    }
+
+    /**
+     * Records {@link NonogramStats} for every solve, returned with the result and added to {@link NonogramMetrics}
+     *
+     * @param stats true to record statistics
+     * @return these options
+     */
+    public NonogramSolverOptions setStats(boolean stats) {
+        this.stats = stats;
+        return this;
+    }
+
+    public int getTraceCapacity() {
+        return traceCapacity;
+    }
+
+    /**
+     * Keeps a {@link NonogramTrace} of the last propagation events of every solve. Only used when statistics are on
+     *
+     * @param traceCapacity number of events kept, 0 for no trace
+     * @return these options
+     */
+    public NonogramSolverOptions setTraceCapacity(int traceCapacity) {
+        this.traceCapacity = traceCapacity;
+        return this;
+    }
+}
@@ -0,0 +1,223 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and phase timers of a solve.
+ * <p>
+ * A solve only records statistics when {@link NonogramSolverOptions#setStats(boolean)} is on; otherwise it carries no
+ * stats object and every recording site is skipped by a single null check. Counters are {@link LongAdder}s, so the
+ * copies of a parallel search can record into the same object. Times are wall-clock nanoseconds summed over every
+ * thread, so with parallel search they can exceed the total time.
+ */
+public class NonogramStats {
+    private final LongAdder lineSolves = new LongAdder(), tableSolves = new LongAdder();
+    private final LongAdder candidatesGenerated = new LongAdder(), candidatesRejected = new LongAdder();
+    private final LongAdder cellsDecided = new LongAdder(), passes = new LongAdder();
+    private final LongAccumulator maxCellsPerPass = new LongAccumulator(Math::max, 0);
+    private final LongAdder cacheHits = new LongAdder(), cacheMisses = new LongAdder();
+    private final LongAdder searchNodes = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder(), propagationNanos = new LongAdder(), searchNanos = new LongAdder();
+    private final LongAdder enumerationNanos = new LongAdder(), commonalitiesNanos = new LongAdder(), overlapNanos = new LongAdder();
+    private final NonogramTrace trace; // null if tracing is off
+
+    /**
+     * Instantiates empty statistics without a trace
+     */
+    public NonogramStats() {
+        this(0);
+    }
+
+    /**
+     * Instantiates empty statistics
+     *
+     * @param trace_capacity number of propagation events kept, 0 for no trace
+     */
+    public NonogramStats(int trace_capacity) {
+        trace = (trace_capacity > 0) ? new NonogramTrace(trace_capacity) : null;
+    }
+
+    /**
+     * Records one line solve
+     *
+     * @param generated candidate placements generated by the enumeration engine
+     * @param rejected  candidates rejected for contradicting known squares
+     * @param cached    true on a line cache hit, false on a miss, null without a cache
+     */
+    void lineSolved(long generated, long rejected, Boolean cached) {
+        lineSolves.increment();
+        if (generated != 0) candidatesGenerated.add(generated);
+        if (rejected != 0) candidatesRejected.add(rejected);
+        if (cached != null) (cached ? cacheHits : cacheMisses).increment();
+    }
+
+    /**
+     * Records that a line solve was answered from its {@link NonogramLineTable}. It is counted by
+     * {@link #lineSolved(long, long, Boolean)} as well, but not timed: a clock read would cost about as much as the solve
+     */
+    void tableSolved() {
+        tableSolves.increment();
+    }
+
+    /**
+     * Records the time spent in the phases of an enumeration line solve
+     *
+     * @param enumeration   nanoseconds generating, filtering and intersecting candidates
+     * @param commonalities nanoseconds filtering and intersecting the candidates stored by an earlier enumeration
+     */
+    void enumerationTimed(long enumeration, long commonalities) {
+        enumerationNanos.add(enumeration);
+        commonalitiesNanos.add(commonalities);
+    }
+
+    void overlapTimed(long nanos) {
+        overlapNanos.add(nanos);
+    }
+
+    /**
+     * Records one propagation pass, i.e. one run of line logic to a fixed point
+     *
+     * @param cells squares decided by the pass
+     * @param nanos duration of the pass
+     */
+    void passCompleted(long cells, long nanos) {
+        passes.increment();
+        cellsDecided.add(cells);
+        maxCellsPerPass.accumulate(cells);
+        propagationNanos.add(nanos);
+    }
+
+    void searched(long nodes, long nanos) {
+        searchNodes.add(nodes);
+        searchNanos.add(nanos);
+    }
+
+    void totalTimed(long nanos) {
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * Adds the counters and times of another solve. The trace is not merged
+     *
+     * @param s statistics to add
+     */
+    void add(NonogramStats s) {
+        lineSolves.add(s.getLineSolves());
+        tableSolves.add(s.getTableSolves());
+        candidatesGenerated.add(s.getCandidatesGenerated());
+        candidatesRejected.add(s.getCandidatesRejected());
+        cellsDecided.add(s.getCellsDecided());
+        passes.add(s.getPasses());
+        maxCellsPerPass.accumulate(s.getMaxCellsPerPass());
+        cacheHits.add(s.getCacheHits());
+        cacheMisses.add(s.getCacheMisses());
+        searchNodes.add(s.getSearchNodes());
+        totalNanos.add(s.getTotalNanos());
+        propagationNanos.add(s.getPropagationNanos());
+        searchNanos.add(s.getSearchNanos());
+        enumerationNanos.add(s.getEnumerationNanos());
+        commonalitiesNanos.add(s.getCommonalitiesNanos());
+        overlapNanos.add(s.getOverlapNanos());
+    }
+
+    /**
+     * Clears every counter and time. The trace is not cleared
+     */
+    void reset() {
+        for (LongAdder a : new LongAdder[]{lineSolves, tableSolves, candidatesGenerated, candidatesRejected, cellsDecided, passes, cacheHits, cacheMisses, searchNodes, totalNanos, propagationNanos, searchNanos, enumerationNanos, commonalitiesNanos, overlapNanos}) {
+            a.reset();
+        }
+        maxCellsPerPass.reset();
+    }
+
+    public long getLineSolves() {
+        return lineSolves.sum();
+    }
+
+    public long getTableSolves() {
+        return tableSolves.sum();
+    }
+
+    public long getCandidatesGenerated() {
+        return candidatesGenerated.sum();
+    }
+
+    public long getCandidatesRejected() {
+        return candidatesRejected.sum();
+    }
+
+    /**
+     * Counts the squares decided by line logic. Squares assigned by search branching are not included
+     *
+     * @return number of squares
+     */
+    public long getCellsDecided() {
+        return cellsDecided.sum();
+    }
+
+    /**
+     * Counts the propagation passes: the initial one plus one per search node or probe
+     *
+     * @return number of passes
+     */
+    public long getPasses() {
+        return passes.sum();
+    }
+
+    public long getMaxCellsPerPass() {
+        return maxCellsPerPass.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getSearchNodes() {
+        return searchNodes.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getPropagationNanos() {
+        return propagationNanos.sum();
+    }
+
+    public long getSearchNanos() {
+        return searchNanos.sum();
+    }
+
+    public long getEnumerationNanos() {
+        return enumerationNanos.sum();
+    }
+
+    public long getCommonalitiesNanos() {
+        return commonalitiesNanos.sum();
+    }
+
+    public long getOverlapNanos() {
+        return overlapNanos.sum();
+    }
+
+    /**
+     * Returns the propagation trace
+     *
+     * @return trace, or null if tracing is off
+     */
+    public NonogramTrace getTrace() {
+        return trace;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lines=%d tables=%d candidates=%d rejected=%d cells=%d passes=%d max_cells_per_pass=%d cache=%d/%d nodes=%d"
+                        + " total=%.3fms propagation=%.3fms search=%.3fms enumeration=%.3fms commonalities=%.3fms overlap=%.3fms",
+                getLineSolves(), getTableSolves(), getCandidatesGenerated(), getCandidatesRejected(), getCellsDecided(), getPasses(), getMaxCellsPerPass(),
+                getCacheHits(), getCacheHits() + getCacheMisses(), getSearchNodes(), getTotalNanos() / 1e6, getPropagationNanos() / 1e6,
+                getSearchNanos() / 1e6, getEnumerationNanos() / 1e6, getCommonalitiesNanos() / 1e6, getOverlapNanos() / 1e6);
+    }
+}
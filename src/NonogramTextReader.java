@@ -0,0 +1,238 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming reader for the text formats, {@link NonogramFormat#NON} and {@link NonogramFormat#CWD}.
+ * <p>
+ * NON puzzles are read keyword by keyword and end at the next keyword that can open a puzzle once their rows and
+ * columns sections are complete. Unknown keywords (goal, author, ...) are ignored, before or after the sections. CWD puzzles are a row count, a column count, then one clue line per row and per
+ * column, with "0" for an empty line. Blank lines are skipped in both formats.
+ */
+public class NonogramTextReader extends NonogramReader {
+    private static final Set<String> NON_START = Set.of("catalogue", "title", "width"); // keywords that can open a puzzle
+    private static final Set<String> NON_PUZZLE = Set.of("catalogue", "title", "width", "height", "rows", "columns"); // keywords that belong to a puzzle on their own
+
+    private final BufferedReader in;
+    private final NonogramFormat format;
+    private String pushback = null; // line read ahead of the current puzzle
+    private long line = 0; // number of the last line read
+
+    /**
+     * Opens a text puzzle file
+     *
+     * @param path   file
+     * @param format NON or CWD
+     * @throws IOException if the file cannot be opened
+     */
+    public NonogramTextReader(Path path, NonogramFormat format) throws IOException {
+        this(Files.newBufferedReader(path, StandardCharsets.UTF_8), format);
+    }
+
+    /**
+     * Reads text puzzles from a reader
+     *
+     * @param in     source
+     * @param format NON or CWD
+     */
+    public NonogramTextReader(Reader in, NonogramFormat format) {
+        if (format == NonogramFormat.BINARY) throw new IllegalArgumentException("Not a text format: " + format);
+        this.in = (in instanceof BufferedReader) ? (BufferedReader) in : new BufferedReader(in);
+        this.format = format;
+    }
+
+    @Override
+    public NonogramPuzzle read() throws IOException, NonogramParseException {
+        try {
+            return (format == NonogramFormat.NON) ? readNon() : readCwd();
+        } catch (NonogramParseException e) {
+            index++;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the next NON puzzle
+     */
+    private NonogramPuzzle readNon() throws IOException, NonogramParseException {
+        int width = -1, height = -1;
+        List<List<Integer>> rows = null, columns = null;
+        boolean started = false;
+        String l;
+        try {
+            while ((l = nextLine()) != null) {
+                String[] kv = l.split("\\s+", 2);
+                String key = kv[0].toLowerCase();
+                String value = (kv.length > 1) ? kv[1] : "";
+                started |= NON_PUZZLE.contains(key); // other keywords only annotate a puzzle
+                switch (key) {
+                    case "width":
+                        width = parseInt(value, "width");
+                        break;
+                    case "height":
+                        height = parseInt(value, "height");
+                        break;
+                    case "rows":
+                        if (height < 1) throw error("rows section before a valid height");
+                        rows = readClues(height, ",");
+                        break;
+                    case "columns":
+                        if (width < 1) throw error("columns section before a valid width");
+                        columns = readClues(width, ",");
+                        break;
+                    default:
+                        break;
+                }
+                if (rows != null && columns != null) {
+                    skipNon(); // trailing keywords such as goal still belong to this puzzle
+                    break;
+                }
+            }
+        } catch (NonogramParseException e) {
+            skipNon();
+            throw e;
+        }
+        if (!started) return null;
+        if (rows == null || columns == null) throw error("Puzzle ends without " + ((rows == null) ? "rows" : "columns"));
+        return finish(width, height, rows, columns);
+    }
+
+    /**
+     * Skips the rest of a NON puzzle, malformed or complete, up to the next keyword that can open a puzzle
+     */
+    private void skipNon() throws IOException {
+        String l;
+        while ((l = nextLine()) != null) {
+            if (NON_START.contains(l.split("\\s+", 2)[0].toLowerCase())) {
+                pushback = l;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the next CWD puzzle
+     */
+    private NonogramPuzzle readCwd() throws IOException, NonogramParseException {
+        String l = nextLine();
+        if (l == null) return null;
+        int height, width;
+        try {
+            height = parseInt(l, "row count");
+            l = nextLine();
+            if (l == null) throw error("Puzzle ends without a column count");
+            width = parseInt(l, "column count");
+        } catch (NonogramParseException e) {
+            // Without dimensions there is no way to tell where the puzzle ends, so resume at the next blank line
+            String s;
+            while ((s = in.readLine()) != null && !s.isBlank()) {
+                line++;
+            }
+            line++;
+            throw e;
+        }
+        NonogramParseException failure = null;
+        List<List<Integer>> rows = new ArrayList<>(), columns = new ArrayList<>();
+        for (int i = 0; i < height + width; i++) {
+            l = nextLine();
+            if (l == null) {
+                if (failure == null) failure = error("Puzzle ends after " + i + " of " + (height + width) + " clue lines");
+                break;
+            }
+            try {
+                (i < height ? rows : columns).add(parseClues(l, "\\s+"));
+            } catch (NonogramParseException e) {
+                if (failure == null) failure = e; // keep consuming the puzzle's lines so the next one starts cleanly
+            }
+        }
+        if (failure != null) throw failure;
+        return finish(width, height, rows, columns);
+    }
+
+    /**
+     * Reads a section of clue lines
+     *
+     * @param count     number of lines
+     * @param separator clue separator pattern
+     * @return clues, one list per line
+     */
+    private List<List<Integer>> readClues(int count, String separator) throws IOException, NonogramParseException {
+        List<List<Integer>> clues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String l = nextLine();
+            if (l == null) throw error("Section ends after " + i + " of " + count + " clue lines");
+            clues.add(parseClues(l, separator));
+        }
+        return clues;
+    }
+
+    /**
+     * Parses one line of clues. A single 0 denotes an empty line
+     */
+    private List<Integer> parseClues(String l, String separator) throws NonogramParseException {
+        List<Integer> clues = new ArrayList<>();
+        for (String s : l.trim().split(separator)) {
+            s = s.trim();
+            if (s.isEmpty()) continue;
+            clues.add(parseInt(s, "clue"));
+        }
+        if (clues.size() == 1 && clues.get(0) == 0) clues.clear();
+        return clues;
+    }
+
+    private int parseInt(String s, String what) throws NonogramParseException {
+        try {
+            int v = Integer.parseInt(s.trim());
+            if (v < 0) throw error("Negative " + what + ": " + s.trim());
+            return v;
+        } catch (NumberFormatException e) {
+            throw error("Invalid " + what + ": " + s.trim());
+        }
+    }
+
+    /**
+     * Validates a complete puzzle and advances the puzzle index
+     */
+    private NonogramPuzzle finish(int width, int height, List<List<Integer>> rows, List<List<Integer>> columns) throws NonogramParseException {
+        String problem = checkPuzzle(width, height, rows, columns);
+        if (problem != null) throw error(problem);
+        index++;
+        return new NonogramPuzzle(width, height, rows, columns);
+    }
+
+    /**
+     * Builds an exception for the current puzzle. {@link #read()} advances the puzzle index past it
+     */
+    private NonogramParseException error(String message) {
+        return new NonogramParseException(index, line, message);
+    }
+
+    /**
+     * Returns the next non-blank line, trimmed
+     */
+    private String nextLine() throws IOException {
+        if (pushback != null) {
+            String l = pushback;
+            pushback = null;
+            return l;
+        }
+        String l;
+        while ((l = in.readLine()) != null) {
+            line++;
+            l = l.trim();
+            if (!l.isEmpty()) return l;
+        }
+        return null;
+    }
+}
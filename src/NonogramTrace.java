@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded ring buffer of propagation events: which line decided which square, and to which value.
+ * <p>
+ * Each event is packed into a single {@code long}, so recording is an atomic increment and an array store. Once full,
+ * the oldest events are overwritten. Events are recorded from the search threads without further synchronization, so
+ * the trace should be read once the solve has returned.
+ */
+public class NonogramTrace {
+    public static final int SEARCH = -1; // source of squares assigned by search branching or probing
+    private static final int BITS = 21; // bits per packed field, limits line and square indices to 2^21 - 2
+    private static final long MASK = (1L << BITS) - 1;
+
+    private final long[] events;
+    private final AtomicLong recorded = new AtomicLong();
+
+    /**
+     * Instantiates an empty trace
+     *
+     * @param capacity number of events kept
+     */
+    public NonogramTrace(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        events = new long[capacity];
+    }
+
+    /**
+     * Records a decided square
+     *
+     * @param line   deciding line: rows are 0..height-1, columns are height..height+width-1, or {@link #SEARCH}
+     * @param row    row of the square
+     * @param column column of the square
+     * @param value  1 for filled, 0 for unfilled
+     */
+    void record(int line, int row, int column, int value) {
+        long e = ((line + 1L) & MASK) << (2 * BITS + 1) | (row & MASK) << (BITS + 1) | (column & MASK) << 1 | (value & 1);
+        events[(int) (recorded.getAndIncrement() % events.length)] = e;
+    }
+
+    /**
+     * Returns the kept events, oldest first
+     *
+     * @return events
+     */
+    public List<Event> getEvents() {
+        long n = recorded.get();
+        int kept = (int) Math.min(n, events.length);
+        List<Event> list = new ArrayList<>(kept);
+        for (long k = n - kept; k < n; k++) {
+            list.add(new Event(events[(int) (k % events.length)]));
+        }
+        return list;
+    }
+
+    /**
+     * Counts every event recorded, including the overwritten ones
+     *
+     * @return number of events
+     */
+    public long getRecorded() {
+        return recorded.get();
+    }
+
+    /**
+     * Counts the events overwritten because the trace was full
+     *
+     * @return number of events
+     */
+    public long getDropped() {
+        return Math.max(0, recorded.get() - events.length);
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * A decided square
+     */
+    public static class Event {
+        private final int line, row, column, value;
+
+        private Event(long e) {
+            line = (int) ((e >>> (2 * BITS + 1)) & MASK) - 1;
+            row = (int) ((e >>> (BITS + 1)) & MASK);
+            column = (int) ((e >>> 1) & MASK);
+            value = (int) (e & 1);
+        }
+
+        /**
+         * Returns the deciding line
+         *
+         * @return rows are 0..height-1, columns are height..height+width-1, or {@link #SEARCH}
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * Returns the decided value
+         *
+         * @return 1 for filled, 0 for unfilled
+         */
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return ((line == SEARCH) ? "search" : "line " + line) + " -> (" + row + ", " + column + ") = " + value;
+        }
+    }
+}
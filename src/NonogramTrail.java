@@ -0,0 +1,45 @@
+import java.util.Arrays;
+
+/**
+ * Log of changed squares, in change order, so a search or session can return to any earlier position. Each entry keeps
+ * what undoing it needs: the deciding line of a binary square, the former candidates of a colored square
+ */
+class NonogramTrail {
+    static final int ASSERTION = -1; // cause of squares asserted through a session
+    int[] cells; // square index (row * width + column)
+    long[] values; // deciding line or former candidates
+    int size = 0;
+
+    /**
+     * Instantiates an empty log
+     *
+     * @param capacity expected number of entries; the log grows past it
+     */
+    NonogramTrail(int capacity) {
+        cells = new int[Math.max(1, capacity)];
+        values = new long[cells.length];
+    }
+
+    void push(int cell, long value) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, 2 * size);
+            values = Arrays.copyOf(values, 2 * size);
+        }
+        cells[size] = cell;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Finds the first change of a square
+     *
+     * @param cell square index
+     * @return log position, or the log size if the square is unchanged
+     */
+    int find(int cell) {
+        for (int k = 0; k < size; k++) {
+            if (cells[k] == cell) return k;
+        }
+        return size;
+    }
+}
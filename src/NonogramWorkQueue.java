@@ -0,0 +1,74 @@
+/**
+ * Deduplicating FIFO queue of dirty line indices.
+ * <p>
+ * Lines are numbered {@code 0..size-1}. A line that is already queued is not queued a second time, so each line is
+ * solved at most once per change to its squares.
+ */
+public class NonogramWorkQueue {
+    private final int[] ring; // circular buffer of queued lines
+    private final boolean[] queued;
+    private int head = 0, count = 0;
+
+    /**
+     * Instantiates an empty queue
+     *
+     * @param size number of lines
+     */
+    public NonogramWorkQueue(int size) {
+        ring = new int[size];
+        queued = new boolean[size];
+    }
+
+    /**
+     * Queues a line unless it is already queued
+     *
+     * @param line line index
+     * @return true if the line was added
+     */
+    public boolean add(int line) {
+        if (queued[line]) return false;
+        queued[line] = true;
+        ring[(head + count) % ring.length] = line;
+        count++;
+        return true;
+    }
+
+    /**
+     * Queues every line
+     */
+    public void addAll() {
+        for (int i = 0; i < ring.length; i++) {
+            add(i);
+        }
+    }
+
+    /**
+     * Removes the oldest queued line
+     *
+     * @return line index
+     */
+    public int poll() {
+        int line = ring[head];
+        head = (head + 1) % ring.length;
+        count--;
+        queued[line] = false;
+        return line;
+    }
+
+    /**
+     * Removes every queued line
+     */
+    public void clear() {
+        while (count > 0) {
+            poll();
+        }
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Streaming puzzle writer for every {@link NonogramFormat}. Output read back by {@link NonogramReader} yields the same
+ * puzzles in the same order.
+ * <p>
+ * Methods are synchronized, so puzzles can be written from several threads.
+ */
+public class NonogramWriter implements Closeable, Flushable {
+    private final OutputStream out;
+    private final NonogramFormat format;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(); // binary payload under construction
+    private int count = 0; // puzzles written
+
+    /**
+     * Creates a puzzle file, picking the format from its extension
+     *
+     * @param path file
+     * @throws IOException if the file cannot be created
+     * @see NonogramFormat#fromPath(Path)
+     */
+    public NonogramWriter(Path path) throws IOException {
+        this(Files.newOutputStream(path), NonogramFormat.fromPath(path));
+    }
+
+    /**
+     * Writes puzzles to a stream. The binary header is written immediately
+     *
+     * @param out    destination, closed with the writer
+     * @param format output format
+     * @throws IOException if the header cannot be written
+     */
+    public NonogramWriter(OutputStream out, NonogramFormat format) throws IOException {
+        this.out = (out instanceof BufferedOutputStream) ? out : new BufferedOutputStream(out, 1 << 16);
+        this.format = format;
+        if (format == NonogramFormat.BINARY) {
+            this.out.write(NonogramBinaryReader.MAGIC);
+            this.out.write(NonogramBinaryReader.VERSION);
+        }
+    }
+
+    /**
+     * Appends a puzzle
+     *
+     * @param puzzle puzzle
+     * @throws IOException if the puzzle cannot be written
+     */
+    public synchronized void write(NonogramPuzzle puzzle) throws IOException {
+        switch (format) {
+            case NON:
+                writeNon(puzzle);
+                break;
+            case CWD:
+                writeCwd(puzzle);
+                break;
+            case BINARY:
+                writeBinary(puzzle);
+                break;
+        }
+        count++;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void writeNon(NonogramPuzzle puzzle) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (count > 0) sb.append('\n');
+        sb.append("width ").append(puzzle.getWidth()).append('\n');
+        sb.append("height ").append(puzzle.getHeight()).append('\n');
+        sb.append("\nrows\n");
+        appendClues(sb, puzzle.getRowParams(), ",");
+        sb.append("\ncolumns\n");
+        appendClues(sb, puzzle.getColumnParams(), ",");
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeCwd(NonogramPuzzle puzzle) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (count > 0) sb.append('\n');
+        sb.append(puzzle.getHeight()).append('\n');
+        sb.append(puzzle.getWidth()).append('\n');
+        appendClues(sb, puzzle.getRowParams(), " ");
+        appendClues(sb, puzzle.getColumnParams(), " ");
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBinary(NonogramPuzzle puzzle) throws IOException {
+        record.reset();
+        writeVarint(record, puzzle.getWidth());
+        writeVarint(record, puzzle.getHeight());
+        for (List<Integer> clues : puzzle.getRowParams()) {
+            writeClues(record, clues);
+        }
+        for (List<Integer> clues : puzzle.getColumnParams()) {
+            writeClues(record, clues);
+        }
+        writeVarint(out, record.size());
+        record.writeTo(out);
+    }
+
+    /**
+     * Appends one line per clue list, "0" for an empty line
+     */
+    private static void appendClues(StringBuilder sb, List<List<Integer>> params, String separator) {
+        for (List<Integer> clues : params) {
+            StringJoiner j = new StringJoiner(separator);
+            for (int c : clues) {
+                if (c > 0) j.add(Integer.toString(c));
+            }
+            sb.append((j.length() == 0) ? "0" : j.toString()).append('\n');
+        }
+    }
+
+    private static void writeClues(OutputStream out, List<Integer> clues) throws IOException {
+        int n = 0;
+        for (int c : clues) {
+            if (c > 0) n++;
+        }
+        writeVarint(out, n);
+        for (int c : clues) {
+            if (c > 0) writeVarint(out, c);
+        }
+    }
+
+    /**
+     * Encodes an unsigned LEB128 varint
+     *
+     * @param out destination
+     * @param v   non-negative value
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeVarint(OutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+}